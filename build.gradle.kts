@@ -27,4 +27,29 @@ dependencies {
 
 tasks.withType<Test> {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// Optional SIMD kernel for the LayeredBrain, using the incubating vector API.
+// Enable it with: ./gradlew build -PvectorApi=true
+val vectorApi = (findProperty("vectorApi") as String?).toBoolean()
+val vectorModuleArgs = listOf("--add-modules", "jdk.incubator.vector")
+
+if (vectorApi) {
+    sourceSets {
+        main {
+            java.srcDir("src/vector/java")
+        }
+    }
+
+    tasks.withType<JavaCompile> {
+        options.compilerArgs.addAll(vectorModuleArgs)
+    }
+
+    tasks.withType<Test> {
+        jvmArgs(vectorModuleArgs)
+    }
+
+    application {
+        applicationDefaultJvmArgs = vectorModuleArgs
+    }
+}
@@ -0,0 +1,127 @@
+package algorithm;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class writes the saves of a learning algorithm on its own thread. <br>
+ * The algorithm prepares the content of a save on the control thread, so the save 
+ * stays consistent even if the population changes just after, and gives the writing 
+ * of the files to this class. The writings are made one by one in the order they were
+ * given. The queue is bounded : if the disk is slower than the generations, the control
+ * thread waits before giving a new writing.
+ * @author jrl
+ *
+ */
+class BackgroundSaver {
+	
+	/***********************************************************************************/
+	/*                                variables                                        */
+	/***********************************************************************************/
+	
+	/**
+	 * the writings waiting for the writer thread
+	 */
+	private final BlockingQueue<Runnable> writings;
+	
+	/**
+	 * the thread writing the files
+	 */
+	private final Thread writer;
+	
+	/**
+	 * the number of writings given and not finished yet
+	 */
+	private int nbPending;
+	
+	/***********************************************************************************/
+	/*                               constructors                                      */
+	/***********************************************************************************/
+	
+	/**
+	 * Constructor starting the writer thread.
+	 * @param capacity the number of writings that can wait in the queue
+	 */
+	BackgroundSaver(int capacity) {
+		this.writings = new ArrayBlockingQueue<>(capacity);
+		this.writer = new Thread(this::writeLoop, "background-saver");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+	
+	/***********************************************************************************/
+	/*                                 methods                                         */
+	/***********************************************************************************/
+	
+	/**
+	 * Method giving a writing to the writer thread. It waits if the queue is full. <br>
+	 * An interruption doesn't cancel the writing, or the save would be incomplete : the
+	 * writing is given anyway and the interruption is kept for the caller.
+	 * @param writing the writing of the files
+	 */
+	void submit(Runnable writing) {
+		synchronized (this) {
+			this.nbPending ++;
+		}
+		boolean interrupted = false;
+		while (true) {
+			try {
+				this.writings.put(writing);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+	
+	/**
+	 * Method waiting until all the given writings are finished. <br>
+	 * As for the submission, an interruption doesn't stop the waiting.
+	 */
+	synchronized void flush() {
+		boolean interrupted = false;
+		while (this.nbPending > 0) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+	
+	/**
+	 * Method finishing the given writings, then stopping the writer thread.
+	 */
+	void close() {
+		this.flush();
+		this.writer.interrupt();
+	}
+	
+	/**
+	 * The loop of the writer thread.
+	 */
+	private void writeLoop() {
+		while (true) {
+			Runnable writing;
+			try {
+				writing = this.writings.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				writing.run();
+			} catch (RuntimeException e) {
+				//the next saves can still be written
+				e.printStackTrace();
+			} finally {
+				synchronized (this) {
+					this.nbPending --;
+					notifyAll();
+				}
+			}
+		}
+	}
+	
+}
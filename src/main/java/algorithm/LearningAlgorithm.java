@@ -53,6 +53,11 @@ public abstract class LearningAlgorithm implements Runnable {
 	 */
 	private transient AutosaveCondition autosaveCondition = new NoAutoSave();
 	
+	/**
+	 * the thread writing the saves, or null if the saves are written by the caller.
+	 */
+	private transient volatile BackgroundSaver backgroundSaver;
+	
 	/**
 	 * the time passed in pause.
 	 */
@@ -62,7 +67,7 @@ public abstract class LearningAlgorithm implements Runnable {
 	 * This boolean is true as long as the simulation doesn't end. <br>
 	 * It is swiched to false when we want to stop the simulation.
 	 */
-	private transient boolean running = true;
+	private transient volatile boolean running = true;
 	
 	/**
 	 * This boolean determines if the simulation is in pause or not. <br>
@@ -94,6 +99,8 @@ public abstract class LearningAlgorithm implements Runnable {
     	if (this.controlThread == null) return false;
         running = false;
         notifyAll();
+        //the evaluation in progress is stopped with the control thread
+        if (this.evaluation != null) this.evaluation.cancel();
 	    this.controlThread.interrupt();
 		this.controlThread = null;
 		return true;
@@ -112,6 +119,14 @@ public abstract class LearningAlgorithm implements Runnable {
         return !pause;
     }
     
+    /**
+     * method that let us know if the simulation is stopped.
+     * @return true if the stop command has been given, false otherwise.
+     */
+    protected boolean isStopped() {
+    	return !running;
+    }
+    
     /**
      * method that let us know if the simulation is paused.
      * @return true if the simulation is paused, false otherwise.
@@ -192,6 +207,29 @@ public abstract class LearningAlgorithm implements Runnable {
 		this.autosaveCondition = new SaveTime(time);
 	}
 	
+	/**
+	 * Setter to write the saves on a background thread. <br>
+	 * The content of each save is prepared when it is asked, and the files are written 
+	 * while the next generations are evaluated. A pause, a stop or the end of the 
+	 * simulation waits until all the saves are written, so the last save is always 
+	 * complete.
+	 * @param queueCapacity the number of saves that can wait to be written before the 
+	 * simulation waits for the disk, or 0 to write the saves immediately.
+	 */
+	public synchronized void setBackgroundSaving(int queueCapacity) {
+		if (this.backgroundSaver != null) this.backgroundSaver.close();
+		this.backgroundSaver = (queueCapacity > 0) ? new BackgroundSaver(queueCapacity) : null;
+	}
+	
+	/**
+	 * method waiting until all the saves given to the background thread are written. It
+	 * returns immediately if the saves are not written in background.
+	 */
+	public void flushSaves() {
+		BackgroundSaver saver = this.backgroundSaver;
+		if (saver != null) saver.flush();
+	}
+	
 	/***********************************************************************************/
 	/*                                main methods                                     */
 	/***********************************************************************************/
@@ -234,8 +272,23 @@ public abstract class LearningAlgorithm implements Runnable {
 	
 	/**
 	 * method who takes the learning to the next iteration
+	 * @return false if the iteration was stopped before its end : the simulation stays
+	 * at the current iteration.
 	 */
-	protected abstract void next();
+	protected abstract boolean next();
+	
+	/**
+	 * method used by the saves to write their files. The writing is given to the 
+	 * background thread if there is one, otherwise it is made immediately. <br>
+	 * The writing must only use data prepared before this call, as the simulation can
+	 * continue before the files are written.
+	 * @param writing the writing of the files
+	 */
+	protected void write(Runnable writing) {
+		BackgroundSaver saver = this.backgroundSaver;
+		if (saver != null) saver.submit(writing);
+		else writing.run();
+	}
 	
 	/***********************************************************************************/
 	/*                               running methods                                   */
@@ -248,6 +301,7 @@ public abstract class LearningAlgorithm implements Runnable {
 	private boolean managePauseStop() {
 		if (pause || !running) {
 			this.save();
+			this.flushSaves();
 			this.pausing();
 			if (!running) return true;
 		}
@@ -256,15 +310,18 @@ public abstract class LearningAlgorithm implements Runnable {
 	
 	@Override
 	public void run() {
+		boolean newIteration = true;
 		while (this.runningChoice.runningCondition()) {
-			this.saveGenealogy();
+			//an iteration stopped before its end is not saved again
+			if (newIteration) this.saveGenealogy();
 			if (managePauseStop()) return;
 			if (autosaveCondition.saveCondition()) this.save();
-			this.next();
+			newIteration = this.next();
 		}
 		//at the end
 		this.save();
 		this.saveGenealogy();
+		this.flushSaves();
 		System.exit(0);
 	}
 	
@@ -0,0 +1,170 @@
+package algorithm.neat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import tools.Evaluation;
+
+/**
+ * This class keeps the scores given by a deterministic evaluation, by hash of the genome
+ * of the brains. <br>
+ * The perfect clones made by the reproduction have the same genome as their parent, so
+ * they get its score back without being evaluated again. The individuals sharing the 
+ * same genome in a population are also evaluated only once. <br>
+ * The number of kept scores is limited : when the cache is full, the score used the 
+ * least recently is forgotten.
+ * @author jrl
+ *
+ */
+public class FitnessCache {
+	
+	/***********************************************************************************/
+	/*                                variables                                        */
+	/***********************************************************************************/
+	
+	/**
+	 * the scores by hash of the genome, from the least recently used to the most
+	 */
+	private final LinkedHashMap<Long, Float> scores;
+	
+	/**
+	 * the maximum number of kept scores
+	 */
+	private final int capacity;
+	
+	/**
+	 * the number of individuals that got their score from the cache
+	 */
+	private long nbHits;
+	
+	/**
+	 * the number of individuals that were evaluated
+	 */
+	private long nbMisses;
+	
+	/***********************************************************************************/
+	/*                               constructors                                      */
+	/***********************************************************************************/
+	
+	/**
+	 * Constructor for an empty cache.
+	 * @param capacity the maximum number of kept scores. It must be above 0.
+	 */
+	@SuppressWarnings("serial")
+	public FitnessCache(int capacity) {
+		if (capacity <= 0) throw new IllegalArgumentException("the capacity must be above 0");
+		this.capacity = capacity;
+		this.scores = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Float> eldest) {
+				return this.size() > FitnessCache.this.capacity;
+			}
+		};
+	}
+	
+	/***********************************************************************************/
+	/*                                 methods                                         */
+	/***********************************************************************************/
+	
+	/**
+	 * getter for the maximum number of kept scores
+	 * @return the capacity of the cache
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+	
+	/**
+	 * getter for the number of kept scores
+	 * @return the number of scores in the cache
+	 */
+	public int size() {
+		return this.scores.size();
+	}
+	
+	/**
+	 * getter for the number of individuals that got their score from the cache
+	 * @return the number of hits
+	 */
+	public long getNbHits() {
+		return this.nbHits;
+	}
+	
+	/**
+	 * getter for the number of individuals that were evaluated
+	 * @return the number of misses
+	 */
+	public long getNbMisses() {
+		return this.nbMisses;
+	}
+	
+	/**
+	 * This method forgets all the kept scores.
+	 */
+	public void clear() {
+		this.scores.clear();
+	}
+	
+	/**
+	 * This method evaluates a population using the cache. <br>
+	 * The individuals whose genome is in the cache get the kept score. Among the others,
+	 * only one individual by genome is given to the evaluation, and the score it gets is 
+	 * given to the individuals having the same genome. The scores obtained are kept, 
+	 * unless the evaluation throws an exception.
+	 * @param population the population to evaluate
+	 * @param evaluation the evaluation, that must be deterministic
+	 */
+	public void evaluate(Individual[] population, Evaluation evaluation) {
+		this.evaluate(population, evaluation, () -> false);
+	}
+	
+	/**
+	 * This method evaluates a population using the cache, as the other evaluate method.
+	 * <br>
+	 * If the evaluation is stopped before its end, some individuals are not evaluated :
+	 * the scores are then not kept, and the twins don't get them.
+	 * @param population the population to evaluate
+	 * @param evaluation the evaluation, that must be deterministic
+	 * @param stopped tells, after the evaluation, if it was stopped before its end. The
+	 * evaluation is also taken as stopped if the current thread is interrupted.
+	 */
+	public void evaluate(Individual[] population, Evaluation evaluation, 
+			BooleanSupplier stopped) {
+		//the individuals to evaluate, and the ones sharing their genome
+		Map<Long, List<Individual>> twins = new HashMap<>();
+		List<Individual> toEvaluate = new ArrayList<>();
+		List<Long> hashes = new ArrayList<>();
+		List<Float> oldScores = new ArrayList<>();
+		for (Individual individual : population) {
+			long hash = individual.getBrain().getGenomeHash();
+			Float score = this.scores.get(hash);
+			if (score != null) {
+				individual.updateScore(score);
+				this.nbHits++;
+			} else if (twins.containsKey(hash)) {
+				twins.get(hash).add(individual);
+				this.nbHits++;
+			} else {
+				twins.put(hash, new ArrayList<>());
+				toEvaluate.add(individual);
+				hashes.add(hash);
+				oldScores.add(individual.getScore());
+				this.nbMisses++;
+			}
+		}
+		if (toEvaluate.isEmpty()) return;
+		evaluation.evaluate(toEvaluate.toArray(new Individual[toEvaluate.size()]));
+		if (stopped.getAsBoolean() || Thread.currentThread().isInterrupted()) return;
+		//keeping the scores
+		for (int i = 0; i < toEvaluate.size(); i++) {
+			float score = toEvaluate.get(i).getScore() - oldScores.get(i);
+			this.scores.put(hashes.get(i), score);
+			for (Individual twin : twins.get(hashes.get(i))) twin.updateScore(score);
+		}
+	}
+
+}
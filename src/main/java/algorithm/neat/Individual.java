@@ -47,9 +47,15 @@ public class Individual {
 	private Brain brain;
 	
 	/**
-	 * the score of an individual
+	 * the score of an individual. It can be updated by several threads.
 	 */
-	private float score = 0;
+	private volatile float score = 0;
+	
+	/**
+	 * the number of stages of a staged evaluation the individual went through. It stays 
+	 * at 0 with the other evaluations.
+	 */
+	private int stage = 0;
 	
 	/***********************************************************************************/
 	/*                              static functions                                   */
@@ -118,18 +124,34 @@ public class Individual {
 	 * @param file the file containing the binary save
 	 */
 	public Individual(File file) {
-		ByteBuffer bb;
+		this(Individual.readFile(file));
+	}
+	
+	/**
+	 * Constructor from binary data, as given by toByte. The score is not saved, so it
+	 * starts at 0.
+	 * @param bb the ByteBuffer containing the data
+	 */
+	public Individual(ByteBuffer bb) {
+		this.id = bb.getInt();
+		this.parentId = bb.getInt();
+		this.parent2Id = bb.getInt();
+		this.brain = Brain.restore(bb);
+	}
+	
+	/**
+	 * Private function reading a saved file.
+	 * @param file the file containing the binary save
+	 * @return a ByteBuffer containing the data of the file
+	 */
+	private static ByteBuffer readFile(File file) {
 		try {
-			bb = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
-			this.id = bb.getInt();
-			this.parentId = bb.getInt();
-			this.parent2Id = bb.getInt();
-			this.brain = Brain.restore(bb);
+			return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
 		} catch (IOException e) {
 			e.printStackTrace();
 			System.exit(1);
+			return null;
 		}
-
 	}
 	
 	/***********************************************************************************/
@@ -178,10 +200,30 @@ public class Individual {
 	}
 	
 	/**
-	 * function that allows us to update the score of an individual easily.
+	 * getter for the number of stages of a staged evaluation the individual went 
+	 * through. The individuals stopped early have a lower stage, and are ranked after
+	 * the others in the selection.
+	 * @return the stage of the individual
+	 */
+	public int getStage() {
+		return this.stage;
+	}
+	
+	/**
+	 * setter for the number of stages of a staged evaluation the individual went 
+	 * through.
+	 * @param stage the stage of the individual
+	 */
+	public void setStage(int stage) {
+		this.stage = stage;
+	}
+	
+	/**
+	 * function that allows us to update the score of an individual easily. <br>
+	 * Several threads can update the same individual at the same time.
 	 * @param update the changement of score
 	 */
-	public void updateScore(float update) {
+	public synchronized void updateScore(float update) {
 		this.score += update;
 	}
 	
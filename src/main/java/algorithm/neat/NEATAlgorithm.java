@@ -10,6 +10,7 @@ import java.time.format.DateTimeFormatter;
 import algorithm.LearningAlgorithm;
 import algorithm.neat.reproduction.ReproductionAlgorithm;
 import brain.Brain;
+import brain.InnovationRegistry;
 import tools.Evaluation;
 
 /**
@@ -38,6 +39,11 @@ public class NEATAlgorithm extends LearningAlgorithm {
 	 */
 	private int numGeneration;
 	
+	/**
+	 * the scores of the genomes already evaluated, or null if the scores are not kept
+	 */
+	private transient FitnessCache fitnessCache;
+	
 	/***********************************************************************************/
 	/*                               constructors                                      */
 	/***********************************************************************************/
@@ -120,6 +126,29 @@ public class NEATAlgorithm extends LearningAlgorithm {
 		return this.population;
 	}
 	
+	/**
+	 * getter for the cache of the scores
+	 * @return the cache, or null if the scores are not kept
+	 */
+	public FitnessCache getFitnessCache() {
+		return this.fitnessCache;
+	}
+	
+	/***********************************************************************************/
+	/*                                 setters                                         */
+	/***********************************************************************************/
+	
+	/**
+	 * Setter to keep the scores of the evaluated genomes. <br>
+	 * The cache is only used if the evaluation is declared deterministic : an individual
+	 * whose brain has the same genome as an individual already evaluated gets its score
+	 * without being evaluated.
+	 * @param capacity the maximum number of kept scores, or 0 to not keep the scores
+	 */
+	public void setFitnessCache(int capacity) {
+		this.fitnessCache = (capacity > 0) ? new FitnessCache(capacity) : null;
+	}
+	
 	/***********************************************************************************/
 	/*                           functionnal methods                                   */
 	/***********************************************************************************/
@@ -128,15 +157,23 @@ public class NEATAlgorithm extends LearningAlgorithm {
 	 * this function manages the selection and the mutation for the next generation.
 	 */
 	protected void reproduce() {
+		//the structural mutations of this generation get new innovation numbers
+		InnovationRegistry.getInstance().nextGeneration();
 		this.population = reproductionAlgorithm.reproduce(population);
 		this.numGeneration ++;
 	}
 	
 	/**
-	 * This function allows us to evaluate the population.
+	 * This function allows us to evaluate the population. <br>
+	 * The evaluation runs on the control thread, unless it is a ParallelEvaluation
+	 * spreading the individuals over its own threads. If a fitness cache is set and the
+	 * evaluation is deterministic, the known genomes are not evaluated again.
 	 */
 	protected void evaluate() {
-		evaluation.evaluate(this.population);
+		if (this.fitnessCache != null && evaluation.isDeterministic()) {
+			this.fitnessCache.evaluate(this.population, evaluation, this::isStopped);
+		}
+		else evaluation.evaluate(this.population);
 	}
 	
 	/***********************************************************************************/
@@ -144,26 +181,34 @@ public class NEATAlgorithm extends LearningAlgorithm {
 	/***********************************************************************************/
 	
 	/**
-	 * This functions saves a entire generation.
+	 * This functions saves a entire generation. <br>
+	 * The individuals are converted now, so the save is the current generation even if
+	 * the files are written in background.
 	 */
 	public void saveGeneration() {
-		//create the folder if it is not created
 		String folderName = this.registrationFolder + "/generation_" + this.numGeneration;
-		File settingsFile = new File(folderName);
-		settingsFile.mkdirs();
-		//create the files for each individual
-		for (Individual individual : this.population) {
-			individual.save(new File(folderName + File.separator + individual.getId() + ".bin"));
+		Individual[] individuals = this.population;
+		byte[][] data = new byte[individuals.length][];
+		int[] ids = new int[individuals.length];
+		for (int i = 0; i < individuals.length; i++) {
+			data[i] = individuals[i].toByte();
+			ids[i] = individuals[i].getId();
 		}
+		this.write(() -> {
+			//create the folder if it is not created
+			new File(folderName).mkdirs();
+			//create the files for each individual
+			for (int i = 0; i < data.length; i++) {
+				writeFile(folderName + File.separator + ids[i] + ".bin", data[i]);
+			}
+		});
 	}
 	
 	/**
 	 * saves the simutation parameters.
 	 */
 	public void saveInformations() {
-		//create the needed folder
-		File settingsFile = new File(this.registrationFolder);
-		settingsFile.mkdirs();
+		String folderName = this.registrationFolder;
 		//informations about the reproductionAlgorithm
 		byte[] reproductionSettings = this.reproductionAlgorithm.toByte();
 		ByteBuffer bb = ByteBuffer.allocate(
@@ -172,11 +217,23 @@ public class NEATAlgorithm extends LearningAlgorithm {
 		bb.put(reproductionSettings);
 		bb.putInt(numGeneration);
 		bb.putInt(Individual.getCountId());
-    	//file registration
-		String path = this.registrationFolder + "/settings.bin";
+		this.write(() -> {
+			//create the needed folder
+			new File(folderName).mkdirs();
+			writeFile(folderName + "/settings.bin", bb.array());
+		});
+	}
+	
+	/**
+	 * Private function writing a file of a save. The simulation is stopped if the file
+	 * can't be written.
+	 * @param path the path of the file
+	 * @param data the content of the file
+	 */
+	private static void writeFile(String path, byte[] data) {
 		try {
 	    	FileOutputStream fos = new FileOutputStream(path);
-			fos.write(bb.array());
+			fos.write(data);
 	    	fos.flush();
 	    	fos.close();
 		} catch (IOException e) {
@@ -193,10 +250,7 @@ public class NEATAlgorithm extends LearningAlgorithm {
 	
 	@Override
 	public void saveGenealogy() {
-		//create the folder and the file if it is not created
 		String folderName = this.registrationFolder + "/generations";
-		File settingsFile = new File(folderName);
-		settingsFile.mkdirs();
 		//get the informations about the individuals (12 bytes for each individual)
 		ByteBuffer bb = ByteBuffer.allocate(12 * this.population.length);
 		for (Individual individual : this.population) {
@@ -204,23 +258,21 @@ public class NEATAlgorithm extends LearningAlgorithm {
 			bb.putInt(individual.getParentId());
 			bb.putInt(individual.getParent2Id());
 		}
-    	//file registration
 		String path = folderName + "/generation_"+ this.numGeneration +".bin";
-		try {
-	    	FileOutputStream fos = new FileOutputStream(path);
-			fos.write(bb.array());
-	    	fos.flush();
-	    	fos.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-            System.exit(1);
-		}
+		this.write(() -> {
+			//create the folder if it is not created
+			new File(folderName).mkdirs();
+			writeFile(path, bb.array());
+		});
 	}
 	
 	@Override
-	public void next() {
+	public boolean next() {
 		this.evaluate();
+		//a stopped evaluation only gives partial scores : the generation is kept as is
+		if (this.isStopped()) return false;
 		this.reproduce();
+		return true;
 	}
 	
 
@@ -1,8 +1,6 @@
 package algorithm.neat.reproduction;
 
 import java.nio.ByteBuffer;
-import java.util.Arrays;
-import java.util.Comparator;
 
 import algorithm.neat.Individual;
 
@@ -75,7 +73,7 @@ public class Elitism extends ReproductionAlgorithm {
 	
 	@Override
 	public Individual[] reproduce(Individual[] population) {
-        Arrays.sort(population, Comparator.comparingDouble(Individual::getScore).reversed());
+		TopSelection.select(population, this.limit);
 		Individual[] newPopulation = new Individual[this.nbPerfectClones + this.nbMutatedClones + this.nbCombinedChildren];
 		//perfect clones
 		for (int i = 0; i < this.nbPerfectClones; i++) {
@@ -62,7 +62,10 @@ public abstract class ReproductionAlgorithm {
 	/**
 	 * This function allows to generate the next generation after the evaluation of the
 	 * old one. <br>
-	 * The population must be sorted by desending order of score.
+	 * The best individuals, up to the limit of the algorithm, are moved at the beginning
+	 * of the population by TopSelection : the individuals that went through the most 
+	 * stages of evaluation first, then by desending order of score. Without a staged 
+	 * evaluation, only the score counts. The rest of the population is not sorted.
 	 * @param population the evaluated population used to generate the next generation
 	 * @return the new generation
 	 */
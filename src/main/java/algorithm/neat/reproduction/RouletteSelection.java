@@ -1,8 +1,6 @@
 package algorithm.neat.reproduction;
 
 import java.nio.ByteBuffer;
-import java.util.Arrays;
-import java.util.Comparator;
 
 import algorithm.neat.Individual;
 import tools.RandomManager;
@@ -94,10 +92,12 @@ public class RouletteSelection extends ReproductionAlgorithm {
 	
 	@Override
 	public Individual[] reproduce(Individual[] population) {
-		Arrays.sort(population, Comparator.comparingDouble(Individual::getScore).reversed());
+		TopSelection.select(population, (this.limit > 0) ? this.limit : population.length);
 		Individual[] newPopulation = new Individual[this.nbPerfectClones + this.nbMutatedClones + this.nbCombinedChildren];
 		//ajust the score to only have positive scores (the lowest score will become 1)
-		float changeScore = population[population.length-1].getScore() * (-1) + 1;
+		float minScore = population[0].getScore();
+		for (Individual individual : population) minScore = Math.min(minScore, individual.getScore());
+		float changeScore = minScore * (-1) + 1;
 		for (Individual individual : population) individual.updateScore(changeScore);
 		//calculate the sum of the scores of the allowed ones
 		float sumScore = 0;
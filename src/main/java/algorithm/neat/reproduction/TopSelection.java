@@ -0,0 +1,142 @@
+package algorithm.neat.reproduction;
+
+import algorithm.neat.Individual;
+
+/**
+ * This class finds the best individuals of a population without sorting all of it. <br>
+ * The reproduction algorithms only use the individuals up to their limit, so only 
+ * these ones are ranked : the individuals that went through the most stages of a 
+ * staged evaluation first, then by descending order of score. This order is turned 
+ * into one long by individual : the stage in the high bits and the score in the low 
+ * bits. A heap of the size of the limit keeps the best keys seen, so most of the 
+ * individuals are rejected by comparing two longs. The individuals with the same key 
+ * stay in their original order, as with a stable sort.
+ * @author jrl
+ *
+ */
+final class TopSelection {
+	
+	/**
+	 * Private constructor, this class only has static methods.
+	 */
+	private TopSelection() {}
+	
+	/**
+	 * This function moves the best individuals at the beginning of the population, in 
+	 * the order of their keys. The other individuals follow in their original order.
+	 * @param population the evaluated population
+	 * @param nbSelected the number of best individuals wanted
+	 * @return the number of individuals ranked at the beginning of the population, at 
+	 * most its size
+	 */
+	static int select(Individual[] population, int nbSelected) {
+		int nbRanked = Math.min(nbSelected, population.length);
+		if (nbRanked <= 0) return 0;
+		//a heap of the best individuals seen, the worst one at the root
+		long[] heapKeys = new long[nbRanked];
+		int[] heapIndexes = new int[nbRanked];
+		int size = 0;
+		for (int i = 0; i < population.length; i++) {
+			long key = rankKey(population[i]);
+			if (size < nbRanked) {
+				siftUp(heapKeys, heapIndexes, size, key, i);
+				size ++;
+			}
+			//with the same key, the new one is worse because it comes later
+			else if (key > heapKeys[0]) siftDown(heapKeys, heapIndexes, size, key, i);
+		}
+		//removing the worst one each time gives the ranking from the end
+		int[] ranked = new int[nbRanked];
+		for (int last = nbRanked - 1; last >= 0; last--) {
+			ranked[last] = heapIndexes[0];
+			if (last > 0) siftDown(heapKeys, heapIndexes, last, heapKeys[last], heapIndexes[last]);
+		}
+		//the ranked ones first, then the others
+		Individual[] reordered = new Individual[population.length];
+		boolean[] selected = new boolean[population.length];
+		for (int i = 0; i < nbRanked; i++) {
+			reordered[i] = population[ranked[i]];
+			selected[ranked[i]] = true;
+		}
+		int position = nbRanked;
+		for (int i = 0; i < population.length; i++) {
+			if (!selected[i]) reordered[position++] = population[i];
+		}
+		System.arraycopy(reordered, 0, population, 0, population.length);
+		return nbRanked;
+	}
+	
+	/**
+	 * This function gives the key of an individual : a higher key is a better rank. <br>
+	 * The bits of the score are changed so the order of the floats is the order of the 
+	 * unsigned ints, as Double.compare would order them.
+	 * @param individual the individual
+	 * @return the key of the individual
+	 */
+	static long rankKey(Individual individual) {
+		int bits = Float.floatToIntBits(individual.getScore());
+		//the negative floats are reversed, then the sign bit is flipped
+		bits ^= (bits >> 31) & 0x7fffffff;
+		return ((long) individual.getStage() << 32) | ((bits ^ 0x80000000) & 0xffffffffL);
+	}
+	
+	/**
+	 * Private function telling if an individual is ranked after another.
+	 * @param key1 the key of the first individual
+	 * @param index1 the position of the first individual in the population
+	 * @param key2 the key of the second individual
+	 * @param index2 the position of the second individual in the population
+	 * @return true if the first individual is ranked after the second
+	 */
+	private static boolean isWorse(long key1, int index1, long key2, int index2) {
+		return key1 < key2 || (key1 == key2 && index1 > index2);
+	}
+	
+	/**
+	 * Private function adding an individual at the end of the heap.
+	 * @param keys the keys of the heap
+	 * @param indexes the positions in the population of the individuals of the heap
+	 * @param size the size of the heap before the addition
+	 * @param key the key of the added individual
+	 * @param index the position in the population of the added individual
+	 */
+	private static void siftUp(long[] keys, int[] indexes, int size, long key, int index) {
+		int position = size;
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (!isWorse(key, index, keys[parent], indexes[parent])) break;
+			keys[position] = keys[parent];
+			indexes[position] = indexes[parent];
+			position = parent;
+		}
+		keys[position] = key;
+		indexes[position] = index;
+	}
+	
+	/**
+	 * Private function replacing the root of the heap.
+	 * @param keys the keys of the heap
+	 * @param indexes the positions in the population of the individuals of the heap
+	 * @param size the size of the heap
+	 * @param key the key of the new root
+	 * @param index the position in the population of the new root
+	 */
+	private static void siftDown(long[] keys, int[] indexes, int size, long key, int index) {
+		int position = 0;
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) break;
+			if (child + 1 < size 
+					&& isWorse(keys[child + 1], indexes[child + 1], keys[child], indexes[child])) {
+				child ++;
+			}
+			if (!isWorse(keys[child], indexes[child], key, index)) break;
+			keys[position] = keys[child];
+			indexes[position] = indexes[child];
+			position = child;
+		}
+		keys[position] = key;
+		indexes[position] = index;
+	}
+	
+}
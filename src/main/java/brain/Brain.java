@@ -1,7 +1,9 @@
 package brain;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
 
 import brain.mutation.Mutation;
 import tools.RandomManager;
@@ -39,6 +41,17 @@ public abstract class Brain {
 	 */
 	protected LinkedList<Mutation> mutations = new LinkedList<>();
 	
+	/**
+	 * the sum of the hashes of the genes of the brain, kept up to date by the mutations
+	 * once it is known
+	 */
+	private transient long genesHash;
+	
+	/**
+	 * true if genesHash is up to date
+	 */
+	private transient boolean genesHashKnown;
+	
 	/***********************************************************************************/
 	/* 							    concrete methods                                   */
 	/***********************************************************************************/
@@ -55,6 +68,55 @@ public abstract class Brain {
 		Brain.maxUsableCores = maxUsableCores;
 	}
 	
+	/**
+	 * Setter for the executor running the computing tasks when more than one core is
+	 * used. <br>
+	 * By default, a pool shared by all the brains is created at the first need. The
+	 * given executor will not be shut down by the brains.
+	 * @param executor the executor to use, or null to go back to the default pool.
+	 */
+	public static void setExecutor(ExecutorService executor) {
+		ComputingPool.getInstance().setExecutor(executor);
+	}
+
+	/**
+	 * This function shuts down the threads used in the computing process. An executor 
+	 * given by setExecutor is not shut down, only forgotten. <br>
+	 * If a brain needs more than one core after that, a new default pool will be
+	 * created.
+	 */
+	public static void shutdownExecutor() {
+		ComputingPool.getInstance().shutdown();
+	}
+
+	/**
+	 * Setter for the number of links each thread must compute for a thread to be worth
+	 * it. <br>
+	 * By default, this number is measured by a small benchmark the first time a brain
+	 * could use more than one core, and a brain too small to pay for the threads is
+	 * computed by one thread only.
+	 * @param minLinksByThread the number of links. 0 always uses all the usable cores,
+	 * a negative value goes back to the measured number.
+	 */
+	public static void setMinLinksByThread(int minLinksByThread) {
+		ComputingPool.getInstance().setMinLinksByThread(minLinksByThread);
+	}
+
+	/**
+	 * getter for the stats of the choices between one thread and several threads.
+	 * @return a snapshot of the stats
+	 */
+	public static ComputingStats getComputingStats() {
+		return ComputingPool.getInstance().getStats();
+	}
+
+	/**
+	 * This function resets the number of choices counted in the stats.
+	 */
+	public static void resetComputingStats() {
+		ComputingPool.getInstance().resetStats();
+	}
+
 	/**
 	 * setter for the trace of the mutation.
 	 * @param trace true if we want to track the mutation, false otherwise.
@@ -181,7 +243,152 @@ public abstract class Brain {
 	 * @param inputs an array containing the values to inject in the brain
 	 * @return an array of outputs
 	 */
-	public abstract float[] compute(float[] inputs);
+	public float[] compute(float[] inputs) {
+		float[] outputs = new float[this.getNbOutputs()];
+		this.compute(inputs, outputs);
+		return outputs;
+	}
+	
+	/**
+	 * main method of the brain, without any allocation. <br>
+	 * The inputs are read directly in the given array and the results are written in 
+	 * the array of outputs. When only one core is used, no object is created by this 
+	 * method, so it can be called as often as needed without bothering the garbage 
+	 * collector.
+	 * @param inputs an array containing the values to inject in the brain. It is not 
+	 * modified.
+	 * @param outputs an array of at least getNbOutputs() elements that will contain 
+	 * the results
+	 */
+	public abstract void compute(float[] inputs, float[] outputs);
+	
+	/**
+	 * method to compute a whole set of samples at once. <br>
+	 * The inputs are given sample after sample in one array : the input i of the sample 
+	 * s is inputs[s * getNbInputs() + i]. The outputs are returned the same way.
+	 * @param inputs an array containing the values to inject in the brain for every 
+	 * sample
+	 * @param nbSamples the number of samples in the array
+	 * @return an array containing the outputs of every sample
+	 */
+	public float[] computeBatch(float[] inputs, int nbSamples) {
+		int nbInputs = this.getNbInputs();
+		int nbOutputs = this.getNbOutputs();
+		float[] results = new float[nbSamples * nbOutputs];
+		float[] sampleInputs = new float[nbInputs];
+		float[] sampleOutputs = new float[nbOutputs];
+		for (int s = 0; s < nbSamples; s++) {
+			System.arraycopy(inputs, s * nbInputs, sampleInputs, 0, nbInputs);
+			this.compute(sampleInputs, sampleOutputs);
+			System.arraycopy(sampleOutputs, 0, results, s * nbOutputs, nbOutputs);
+		}
+		return results;
+	}
+	
+	/**
+	 * method to compute a whole set of samples at once.
+	 * @param inputs an array containing one array of inputs for each sample
+	 * @return an array containing one array of outputs for each sample
+	 */
+	public float[][] computeBatch(float[][] inputs) {
+		int nbInputs = this.getNbInputs();
+		int nbOutputs = this.getNbOutputs();
+		//putting all the samples in one array
+		float[] flatInputs = new float[inputs.length * nbInputs];
+		for (int s = 0; s < inputs.length; s++) {
+			System.arraycopy(inputs[s], 0, flatInputs, s * nbInputs, nbInputs);
+		}
+		float[] flatResults = this.computeBatch(flatInputs, inputs.length);
+		//splitting the results
+		float[][] results = new float[inputs.length][];
+		for (int s = 0; s < inputs.length; s++) {
+			results[s] = Arrays.copyOfRange(flatResults, s * nbOutputs, (s + 1) * nbOutputs);
+		}
+		return results;
+	}
+	
+	/**
+	 * getter for the number of inputs of the brain
+	 * @return the number of values expected by the compute method
+	 */
+	public abstract int getNbInputs();
+	
+	/**
+	 * getter for the number of outputs of the brain
+	 * @return the number of values given by the compute method
+	 */
+	public abstract int getNbOutputs();
+	
+	// genome hash ----------------------------------------------------------------------
+	
+	/**
+	 * This function gives a hash of the genome of the brain : its structure and the 
+	 * factors of its links. Two brains with the same hash compute the same outputs,
+	 * except for the rare collisions of a 64 bits hash. <br>
+	 * The hash is the sum of the hashes of the genes, so the mutations update it without
+	 * going through all the links, and a copy gets the hash of its original.
+	 * @return the hash of the genome
+	 */
+	public long getGenomeHash() {
+		if (!this.genesHashKnown) {
+			this.genesHash = this.computeGenesHash();
+			this.genesHashKnown = true;
+		}
+		return this.genesHash + this.structureHash();
+	}
+	
+	/**
+	 * This function computes the sum of the hashes of all the genes of the brain.
+	 * @return the sum of the hashes of the genes
+	 */
+	abstract long computeGenesHash();
+	
+	/**
+	 * This function gives a hash of the settings of the brain that are not genes, like
+	 * the number of inputs and outputs.
+	 * @return the hash of the settings
+	 */
+	abstract long structureHash();
+	
+	/**
+	 * This method updates the hash of the genome after a mutation, if it is known.
+	 * @param removed the hash of the gene removed by the mutation, 0 if none
+	 * @param added the hash of the gene added by the mutation, 0 if none
+	 */
+	void updateGenesHash(long removed, long added) {
+		this.genesHash += added - removed;
+	}
+	
+	/**
+	 * This method must be called after a mutation that can not update the hash of the
+	 * genome gene by gene. The hash will be computed again when needed.
+	 */
+	void forgetGenesHash() {
+		this.genesHashKnown = false;
+	}
+	
+	/**
+	 * This method gives to a copy the hash of the genome of its original.
+	 * @param original the copied brain
+	 */
+	void copyGenesHash(Brain original) {
+		this.genesHash = original.genesHash;
+		this.genesHashKnown = original.genesHashKnown;
+	}
+	
+	/**
+	 * This function gives the hash of one gene, mixing the bits of its key and of its
+	 * factor.
+	 * @param key the position of the gene in the brain
+	 * @param factor the factor of the gene
+	 * @return the hash of the gene
+	 */
+	static long geneHash(long key, float factor) {
+		long hash = key * 0x9E3779B97F4A7C15L + Float.floatToIntBits(factor);
+		hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
 	
 	// method of saving -----------------------------------------------------------------
 	
@@ -0,0 +1,298 @@
+package brain;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a singleton designed to centralize the threads used by the brains in
+ * the computing process. <br>
+ * The pool lives as long as the program and is shared by all the brains, so no thread
+ * is created while computing. By default, a ForkJoinPool with one thread by available
+ * processor is created on the first use, but any ExecutorService can be given instead.
+ * <br>
+ * The pool also decides how many threads a computing deserves. Giving a task to an
+ * other thread costs as much as computing a few hundred links, so a small brain is
+ * faster with one thread. The cost of a link and the cost of a task are measured once
+ * by a small benchmark, and a thread is used only if it has enough links to compute to
+ * pay for its task.
+ *
+ * @author jrl
+ *
+ */
+class ComputingPool {
+
+	/**
+	 * unique instance of this class
+	 */
+	private static final ComputingPool INSTANCE = new ComputingPool();
+
+	/**
+	 * the executor running the tasks. It is created on the first use.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * true if the executor was given from outside. In this case, it is not up to us to
+	 * shut it down.
+	 */
+	private boolean injected;
+
+	/**
+	 * the number of links each thread must compute for a thread to be worth it. -1 while
+	 * the benchmark has not run.
+	 */
+	private volatile long minLinksByThread = -1;
+
+	/**
+	 * true if minLinksByThread was given from outside instead of measured
+	 */
+	private boolean forcedMinLinks;
+
+	/**
+	 * the measured time to compute one link, in nanoseconds
+	 */
+	private double nsByLink;
+
+	/**
+	 * the measured time to give one task to the pool, in nanoseconds
+	 */
+	private double nsByTask;
+
+	/**
+	 * the number of computings made with one thread. The brains computed at the same time
+	 * by several threads count on separate cells, so they don't wait for each other.
+	 */
+	private final LongAdder nbSingleThread = new LongAdder();
+
+	/**
+	 * the number of computings made with several threads
+	 */
+	private final LongAdder nbMultipleThreads = new LongAdder();
+
+	/**
+	 * the number of links computed by each round of the benchmark
+	 */
+	private static final int BENCHMARK_LINKS = 4096;
+
+	/**
+	 * the number of rounds of the benchmark of the links. The first half only warms up
+	 * the code, so that the loop is measured once compiled.
+	 */
+	private static final int BENCHMARK_LINK_ROUNDS = 2000;
+
+	/**
+	 * the number of rounds of the benchmark of the tasks. The first half only warms up
+	 * the threads of the executor.
+	 */
+	private static final int BENCHMARK_TASK_ROUNDS = 200;
+
+	/**
+	 * a value written by the benchmark so that its loops are not removed
+	 */
+	private volatile float benchmarkSink;
+
+	/**
+	 * Private constructor to prevent external instantiation.
+	 */
+	private ComputingPool() {}
+
+	/**
+	 * Returns the singleton instance of ComputingPool.
+	 * @return The singleton instance of ComputingPool.
+	 */
+	static ComputingPool getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * getter for the executor. If there is no executor yet, the default one is created.
+	 * @return the executor used to run the tasks
+	 */
+	synchronized ExecutorService getExecutor() {
+		if (this.executor == null || this.executor.isShutdown()) {
+			this.executor = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+			this.injected = false;
+		}
+		return this.executor;
+	}
+
+	/**
+	 * setter for the executor. The previous default executor is shut down, an
+	 * executor that was given from outside is left untouched.
+	 * @param executor the new executor. If null, the default executor will be used
+	 * again.
+	 */
+	synchronized void setExecutor(ExecutorService executor) {
+		if (this.executor != null && !this.injected) this.executor.shutdown();
+		this.executor = executor;
+		this.injected = executor != null;
+		//the cost of a task depends on the executor
+		if (!this.forcedMinLinks) this.minLinksByThread = -1;
+	}
+
+	/**
+	 * shut down the executor. An executor that was given from outside is only 
+	 * forgotten, not shut down. A new default executor will be created if a brain
+	 * needs it again.
+	 */
+	synchronized void shutdown() {
+		if (this.executor != null && !this.injected) this.executor.shutdown();
+		this.executor = null;
+		this.injected = false;
+	}
+
+	/**
+	 * Run all the tasks and wait for all of them to finish. <br>
+	 * The last task is run by the calling thread. If the calling thread is interrupted,
+	 * the tasks are still waited for so that the results are complete, and the
+	 * interruption is restored at the end.
+	 * @param tasks the tasks to run
+	 */
+	void runAll(Runnable[] tasks) {
+		if (tasks.length == 0) return;
+		ExecutorService pool = this.getExecutor();
+		Future<?>[] futures = new Future<?>[tasks.length - 1];
+		for (int i = 0; i < futures.length; i++) futures[i] = pool.submit(tasks[i]);
+		tasks[tasks.length - 1].run();
+		//waiting for the other tasks
+		boolean interrupted = false;
+		for (int i = 0; i < futures.length; i++) {
+			try {
+				futures[i].get();
+			} catch (InterruptedException e) {
+				interrupted = true;
+				i--; //wait again for the same task
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("error while computing", e.getCause());
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	// cost model ----------------------------------------------------------------------
+
+	/**
+	 * This function chooses the number of threads used to compute a set of links. <br>
+	 * Each thread must have at least minLinksByThread links to compute, and no more
+	 * than Brain.maxUsableCores threads or one thread by processor are used. The choice
+	 * is counted in the stats, unless only one thread can be used : there is no choice
+	 * then, and the brains computed in parallel by an evaluation don't pay for the stats.
+	 * @param nbLinks the number of links to compute, counting the nodes as links if
+	 * they have a cost
+	 * @return the number of threads to use, at least one
+	 */
+	int chooseNbThreads(long nbLinks) {
+		int maxThreads = Math.min(Brain.maxUsableCores, Runtime.getRuntime().availableProcessors());
+		if (maxThreads < 2) return 1;
+		long minLinks = this.minLinksByThread;
+		if (minLinks < 0) minLinks = this.calibrate();
+		int nbThreads = (minLinks == 0) ? maxThreads
+				: (int) Math.min(maxThreads, nbLinks / minLinks);
+		if (nbThreads < 2) {
+			this.nbSingleThread.increment();
+			return 1;
+		}
+		this.nbMultipleThreads.increment();
+		return nbThreads;
+	}
+
+	/**
+	 * setter for the number of links each thread must compute for a thread to be worth
+	 * it.
+	 * @param minLinksByThread the number of links. 0 always uses all the usable cores,
+	 * a negative value measures it again with the benchmark.
+	 */
+	synchronized void setMinLinksByThread(long minLinksByThread) {
+		this.forcedMinLinks = minLinksByThread >= 0;
+		this.minLinksByThread = (minLinksByThread >= 0) ? minLinksByThread : -1;
+	}
+
+	/**
+	 * getter for the stats of the choices made by chooseNbThreads.
+	 * @return a snapshot of the stats
+	 */
+	synchronized ComputingStats getStats() {
+		return new ComputingStats(this.nbSingleThread.sum(), this.nbMultipleThreads.sum(),
+				this.nsByLink, this.nsByTask, this.minLinksByThread);
+	}
+
+	/**
+	 * reset the number of choices counted in the stats. The measures are kept.
+	 */
+	void resetStats() {
+		this.nbSingleThread.reset();
+		this.nbMultipleThreads.reset();
+	}
+
+	/**
+	 * Private function running the benchmark if it has not run yet. <br>
+	 * The cost of a link is measured on a loop like the ones of the brains, the cost of
+	 * a task by giving empty tasks to the executor. The median of the last rounds is
+	 * kept for both.
+	 * @return the number of links each thread must compute for a thread to be worth it
+	 */
+	private synchronized long calibrate() {
+		if (this.minLinksByThread >= 0) return this.minLinksByThread;
+		//cost of a link
+		float[] values = new float[BENCHMARK_LINKS];
+		float[] factors = new float[BENCHMARK_LINKS];
+		int[] origins = new int[BENCHMARK_LINKS];
+		for (int i = 0; i < BENCHMARK_LINKS; i++) {
+			values[i] = i * 0.001f;
+			factors[i] = 1f - i * 0.0001f;
+			origins[i] = (i * 7919) % BENCHMARK_LINKS;
+		}
+		long[] linkTimes = new long[BENCHMARK_LINK_ROUNDS];
+		for (int r = 0; r < BENCHMARK_LINK_ROUNDS; r++) {
+			long start = System.nanoTime();
+			this.benchmarkSink = benchmarkLinks(values, factors, origins);
+			linkTimes[r] = System.nanoTime() - start;
+		}
+		//cost of a task
+		int nbTasks = Math.max(2, Math.min(Brain.maxUsableCores,
+				Runtime.getRuntime().availableProcessors()));
+		Runnable[] tasks = new Runnable[nbTasks];
+		for (int i = 0; i < nbTasks; i++) tasks[i] = () -> {};
+		long[] taskTimes = new long[BENCHMARK_TASK_ROUNDS];
+		for (int r = 0; r < BENCHMARK_TASK_ROUNDS; r++) {
+			long start = System.nanoTime();
+			this.runAll(tasks);
+			taskTimes[r] = System.nanoTime() - start;
+		}
+		this.nsByLink = Math.max(median(linkTimes) / (double) BENCHMARK_LINKS, 0.01);
+		this.nsByTask = median(taskTimes) / (double) (nbTasks - 1);
+		this.minLinksByThread = Math.max(1, (long) Math.ceil(this.nsByTask / this.nsByLink));
+		return this.minLinksByThread;
+	}
+
+	/**
+	 * Private function computing the links of the benchmark, the same way the nodes of
+	 * a FlexibleBrain gather their signal.
+	 * @param values the values of the nodes
+	 * @param factors the factors of the links
+	 * @param origins the origins of the links
+	 * @return the sum of the signals
+	 */
+	private static float benchmarkLinks(float[] values, float[] factors, int[] origins) {
+		float sum = 0f;
+		for (int j = 0; j < origins.length; j++) sum += values[origins[j]] * factors[j];
+		return sum;
+	}
+
+	/**
+	 * Private function giving the median of the second half of the measures, the first
+	 * half being the warm up.
+	 * @param times the measures
+	 * @return the median of the second half
+	 */
+	private static long median(long[] times) {
+		long[] kept = Arrays.copyOfRange(times, times.length / 2, times.length);
+		Arrays.sort(kept);
+		return kept[kept.length / 2];
+	}
+
+}
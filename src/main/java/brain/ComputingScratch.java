@@ -0,0 +1,80 @@
+package brain;
+
+/**
+ * This class holds the working arrays used by the brains in the computing process. <br>
+ * The values of the nodes are not stored in the brains but in these arrays, so a brain
+ * can be used by several threads at the same time. Each thread has its own scratch,
+ * and the arrays are kept from one computing to the next, so no allocation is needed
+ * once they are big enough. <br>
+ * A scratch must be acquired before use and released after. If a thread computes a
+ * brain while it is already computing an other one, it gets a different scratch.
+ *
+ * @author jrl
+ *
+ */
+final class ComputingScratch {
+
+	/**
+	 * the first scratch of each thread
+	 */
+	private static final ThreadLocal<ComputingScratch> SCRATCH =
+			ThreadLocal.withInitial(ComputingScratch::new);
+
+	/**
+	 * the number of arrays available in a scratch
+	 */
+	static final int NB_BUFFERS = 4;
+
+	/**
+	 * the scratch used if this one is already in use by the same thread
+	 */
+	private ComputingScratch next;
+
+	/**
+	 * true while a computing uses this scratch
+	 */
+	private boolean inUse;
+
+	/**
+	 * the working arrays
+	 */
+	private final float[][] buffers = new float[NB_BUFFERS][0];
+
+	/**
+	 * Private constructor, the scratches are obtained with acquire.
+	 */
+	private ComputingScratch() {}
+
+	/**
+	 * This function gives a scratch that is not in use for the current thread.
+	 * @return a scratch that must be released after the computing
+	 */
+	static ComputingScratch acquire() {
+		ComputingScratch scratch = SCRATCH.get();
+		while (scratch.inUse) {
+			if (scratch.next == null) scratch.next = new ComputingScratch();
+			scratch = scratch.next;
+		}
+		scratch.inUse = true;
+		return scratch;
+	}
+
+	/**
+	 * This method gives back the scratch once the computing is done.
+	 */
+	void release() {
+		this.inUse = false;
+	}
+
+	/**
+	 * This function gives one of the working arrays. Its content is not specified.
+	 * @param index the number of the array, between 0 and NB_BUFFERS
+	 * @param length the minimum length of the array
+	 * @return an array of at least length elements
+	 */
+	float[] buffer(int index, int length) {
+		if (this.buffers[index].length < length) this.buffers[index] = new float[length];
+		return this.buffers[index];
+	}
+
+}
@@ -0,0 +1,111 @@
+package brain;
+
+/**
+ * This class is a snapshot of the choices made by the brains between computing with one
+ * thread or with several. <br>
+ * Before using several threads, the brains compare the number of links to compute with
+ * the cost of giving tasks to the pool. This cost is measured once by a small benchmark
+ * on the first need, and the result is kept here with the number of times each choice
+ * was made. A LayeredBrain makes a choice for each layer, a FlexibleBrain for the whole
+ * brain. No choice is counted while Brain.maxUsableCores is 1.
+ *
+ * @author jrl
+ *
+ */
+public final class ComputingStats {
+
+	/**
+	 * the number of computings made with one thread
+	 */
+	private final long nbSingleThread;
+
+	/**
+	 * the number of computings made with several threads
+	 */
+	private final long nbMultipleThreads;
+
+	/**
+	 * the measured time to compute one link, in nanoseconds
+	 */
+	private final double nsByLink;
+
+	/**
+	 * the measured time to give one task to the pool, in nanoseconds
+	 */
+	private final double nsByTask;
+
+	/**
+	 * the number of links each thread must compute for a thread to be worth it
+	 */
+	private final long minLinksByThread;
+
+	/**
+	 * Constructor of the snapshot, used by the pool.
+	 * @param nbSingleThread the number of computings made with one thread
+	 * @param nbMultipleThreads the number of computings made with several threads
+	 * @param nsByLink the measured time to compute one link, 0 if not measured
+	 * @param nsByTask the measured time to give one task to the pool, 0 if not measured
+	 * @param minLinksByThread the number of links each thread must compute, -1 if not
+	 * known yet
+	 */
+	ComputingStats(long nbSingleThread, long nbMultipleThreads, double nsByLink,
+			double nsByTask, long minLinksByThread) {
+		this.nbSingleThread = nbSingleThread;
+		this.nbMultipleThreads = nbMultipleThreads;
+		this.nsByLink = nsByLink;
+		this.nsByTask = nsByTask;
+		this.minLinksByThread = minLinksByThread;
+	}
+
+	/**
+	 * getter for the number of computings made with one thread. A LayeredBrain counts
+	 * one computing for each layer.
+	 * @return the number of computings made with one thread
+	 */
+	public long getNbSingleThread() {
+		return this.nbSingleThread;
+	}
+
+	/**
+	 * getter for the number of computings made with several threads. A LayeredBrain
+	 * counts one computing for each layer.
+	 * @return the number of computings made with several threads
+	 */
+	public long getNbMultipleThreads() {
+		return this.nbMultipleThreads;
+	}
+
+	/**
+	 * getter for the measured time to compute one link.
+	 * @return the time in nanoseconds, 0 if the benchmark did not run
+	 */
+	public double getNsByLink() {
+		return this.nsByLink;
+	}
+
+	/**
+	 * getter for the measured time to give one task to the pool.
+	 * @return the time in nanoseconds, 0 if the benchmark did not run
+	 */
+	public double getNsByTask() {
+		return this.nsByTask;
+	}
+
+	/**
+	 * getter for the number of links each thread must compute for a thread to be worth
+	 * it.
+	 * @return the number of links, -1 if it is not known yet
+	 */
+	public long getMinLinksByThread() {
+		return this.minLinksByThread;
+	}
+
+	@Override
+	public String toString() {
+		return "single thread : " + this.nbSingleThread + ", multiple threads : "
+				+ this.nbMultipleThreads + ", ns by link : " + this.nsByLink
+				+ ", ns by task : " + this.nsByTask + ", min links by thread : "
+				+ this.minLinksByThread;
+	}
+
+}
@@ -4,11 +4,11 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
 
 import brain.mutation.MutationAdditionLink;
 import brain.mutation.MutationAdditionNode;
@@ -31,30 +31,34 @@ public class FlexibleBrain extends Brain {
 	/***********************************************************************************/
 	
 	/**
-	 * this class represents a node.
+	 * this class represents a node. <br>
+	 * The value of the node is not stored in the node : while computing, the values of
+	 * all the nodes are in an array of the scratch, at the index of the node.
 	 * @author jrl
 	 *
 	 */
 	class Node {
 		
 		/**
-		 * this is the value contained in the node
+		 * the position of the value of the node in the arrays of values. <br>
+		 * The inputs come first, then the outputs, then the hidden nodes.
 		 */
-		protected transient float value = 0f;
+		protected int index;
 		
 		/**
-		 * This method reset the value of a node, setting it to 0.
+		 * the id of the node given by the InnovationRegistry. It does not change when 
+		 * other nodes are deleted.
 		 */
-		public synchronized void resetValue() {
-			this.value = 0f;
-		}
+		protected final int id;
 		
 		/**
-		 * This method updates safely the value of a node.
-		 * @param change the changement to apply to the value
+		 * constructor for a node
+		 * @param index the position of the value of the node in the arrays of values
+		 * @param id the id of the node given by the InnovationRegistry
 		 */
-		public synchronized void updateValue(float change) {
-			this.value += change;
+		Node(int index, int id) {
+			this.index = index;
+			this.id = id;
 		}
 	}
 	
@@ -82,132 +86,475 @@ public class FlexibleBrain extends Brain {
 		private float factor;
 		
 		/**
-		 * the value of the signal travelling
+		 * the innovation number of the link, given by the InnovationRegistry
 		 */
-		private transient float value = 0;
+		private int innovation;
 		
 		/**
 		 * the constructor for a link. It takes the two extremities of the signal 
-		 * and the factor.
+		 * and the factor. The innovation number is given by the InnovationRegistry.
 		 * @param origin the origin node for the link
 		 * @param target the target node for the link
 		 * @param factor the multiplicative factor for the signal while it is transmitted
 		 */
 		public Link(Node origin, Node target, float factor) {
+			this(origin, target, factor, 
+					InnovationRegistry.getInstance().linkInnovation(origin.id, target.id));
+		}
+		
+		/**
+		 * the constructor for a link with a known innovation number.
+		 * @param origin the origin node for the link
+		 * @param target the target node for the link
+		 * @param factor the multiplicative factor for the signal while it is transmitted
+		 * @param innovation the innovation number of the link
+		 */
+		Link(Node origin, Node target, float factor, int innovation) {
 			this.origin = origin;
 			this.target = target;
 			this.factor = factor;
+			this.innovation = innovation;
+		}
+		
+		/**
+		 * getter for the origin node
+		 * @return this.origin
+		 */
+		Node getOrigin() {
+			return this.origin;
 		}
 		
 		/**
-		 * method that take the source signal and transfer it inside the link.
-		 * The value of the signal is multiplied by the factor.
+		 * getter for the target node
+		 * @return this.target
 		 */
-		public void takeSignal() {
-			this.value = this.origin.value * this.factor;
+		Node getTarget() {
+			return this.target;
 		}
 		
 		/**
-		 * method that send the source signal to the target node.
-		 * The value is resetted after.
+		 * getter for the innovation number
+		 * @return this.innovation
 		 */
-		public void sendSignal() {
-			this.target.updateValue(value);
-			this.value = 0;
+		int getInnovation() {
+			return this.innovation;
 		}
 	}
 	
-	/***********************************************************************************/
-	/*                     integrated classes for multithreading                       */
-	/***********************************************************************************/
-	
 	/**
-	 * This class allow us to reset the values of the node arrays using multiple threads.
+	 * This class is the compiled form of the brain used in the computing process. <br>
+	 * The links are stored by target node in primitive arrays (compressed sparse rows) :
+	 * the links arriving to the node of index v are between linksStart[v] and 
+	 * linksStart[v+1], with the index of their origin node in origins and their factor in
+	 * factors. The value of each node after a jump can then be computed in one tight loop,
+	 * without any lock. <br>
+	 * It is built from the links when needed and thrown away at each mutation. As it 
+	 * never changes, the copies of a brain share it with their original, with the code 
+	 * generated for it, until one of them mutates. <br>
+	 * <br>
+	 * If there is no cycle between the hidden nodes, the nodes are also sorted so that 
+	 * each node comes after the nodes sending it a signal. Following the jumps, a path 
+	 * of L links from an input to an output gives its signal to the output at each jump 
+	 * from the L-th, so with T jumps the output receives (T - L + 1) times the product 
+	 * of the factors along the path multiplied by the input. When T is at least the 
+	 * length of the longest path, every path is complete, and the outputs can be computed 
+	 * in one pass along the sorted nodes by propagating two sums for each node : 
+	 * a, the sum over the paths of the products, and b, the same sum weighted by the 
+	 * length of the paths. The output is then (T + 1) * a - b.
 	 * @author jrl
 	 *
 	 */
-	private class ResetNodes implements Runnable {
+	private static final class CompiledBrain {
 		
 		/**
-		 * The array to reset
+		 * the number of jumps under which following the jumps is as fast as the pass along
+		 * the sorted nodes
 		 */
-		private Node[] nodeArray;
+		private static final int FEED_FORWARD_MIN_TIME = 2;
 		
 		/**
-		 * The start index of the area of action
+		 * the number of inputs
 		 */
-		private int startIndex;
+		private final int nbInputs;
 		
 		/**
-		 * the end index of the area of action
+		 * the number of nodes keeping their value from one jump to the next (inputs and 
+		 * outputs)
 		 */
-		private int endIndex;
-
+		private final int nbKept;
+		
+		/**
+		 * the total number of nodes
+		 */
+		private final int nbNodes;
+		
+		/**
+		 * the position of the first link arriving to each node, and the number of links at 
+		 * the end
+		 */
+		private final int[] linksStart;
+		
+		/**
+		 * the index of the origin node of each link
+		 */
+		private final int[] origins;
+		
+		/**
+		 * the multiplicative factor of each link
+		 */
+		private final float[] factors;
+		
+		/**
+		 * the hidden and output nodes sorted so that each node comes after the nodes 
+		 * sending it a signal, or null if it is not possible (cycle in the hidden nodes)
+		 */
+		private int[] order;
+		
+		/**
+		 * the number of links of the longest path from an input to an output, if the nodes
+		 * are sorted
+		 */
+		private int maxDepth;
+		
 		/**
-		 * @param nodeArray The array to reset
-		 * @param startIndex The start index of the area of action
-		 * @param endIndex the end index of the area of action
+		 * the number of computings made with this compiled form, until the code is 
+		 * generated
 		 */
-		public ResetNodes(Node[] nodeArray, int startIndex, int endIndex) {
-			this.nodeArray = nodeArray;
-			this.startIndex = startIndex;
-			this.endIndex = (endIndex < nodeArray.length) ? endIndex : nodeArray.length;
+		private int nbCalls;
+		
+		/**
+		 * the code generated for this compiled form, or null
+		 */
+		private FlexibleBrainCompiler.GeneratedCode generatedCode;
+		
+		/**
+		 * true once the generation of the code has been tried
+		 */
+		private volatile boolean generationDone;
+		
+		/**
+		 * Constructor. The order of the links arriving to a node is kept, so the results
+		 * are exactly the same as the ones obtained by following the links. <br>
+		 * Only the links on a path from an input to an output are kept : the other ones 
+		 * either carry no signal or give it to nodes that never reach an output, so they 
+		 * do not change the outputs.
+		 * @param brain the brain to compile
+		 */
+		CompiledBrain(FlexibleBrain brain) {
+			this.nbInputs = brain.inputs.length;
+			this.nbKept = brain.inputs.length + brain.outputs.length;
+			this.nbNodes = brain.nbNodes();
+			int nbLinks = brain.links.size();
+			int[] linkOrigins = new int[nbLinks];
+			int[] linkTargets = new int[nbLinks];
+			for (int i = 0; i < nbLinks; i++) {
+				linkOrigins[i] = brain.links.get(i).origin.index;
+				linkTargets[i] = brain.links.get(i).target.index;
+			}
+			//the nodes reached from the inputs, and the nodes reaching the outputs
+			boolean[] fromInputs = reachable(this.nbNodes, linkOrigins, linkTargets, 
+					0, this.nbInputs);
+			boolean[] toOutputs = reachable(this.nbNodes, linkTargets, linkOrigins, 
+					this.nbInputs, this.nbKept);
+			int nbUsefulLinks = 0;
+			this.linksStart = new int[this.nbNodes + 1];
+			//counting the links arriving to each node
+			for (int i = 0; i < nbLinks; i++) {
+				if (!fromInputs[linkOrigins[i]] || !toOutputs[linkTargets[i]]) continue;
+				this.linksStart[linkTargets[i] + 1]++;
+				nbUsefulLinks++;
+			}
+			for (int v = 0; v < this.nbNodes; v++) this.linksStart[v + 1] += this.linksStart[v];
+			//placing the links
+			this.origins = new int[nbUsefulLinks];
+			this.factors = new float[nbUsefulLinks];
+			int[] position = Arrays.copyOf(this.linksStart, this.nbNodes);
+			for (int i = 0; i < nbLinks; i++) {
+				if (!fromInputs[linkOrigins[i]] || !toOutputs[linkTargets[i]]) continue;
+				int j = position[linkTargets[i]]++;
+				this.origins[j] = linkOrigins[i];
+				this.factors[j] = brain.links.get(i).factor;
+			}
+			this.sortNodes();
 		}
-
-		@Override
-		public void run() {
-			for (int i = startIndex; i < endIndex; i++) {
-				nodeArray[i].resetValue();
+		
+		/**
+		 * This function finds the nodes that can be reached from some starting nodes by 
+		 * following the links.
+		 * @param nbNodes the total number of nodes
+		 * @param from the node at the beginning of each link
+		 * @param to the node at the end of each link
+		 * @param startNode the index of the first starting node
+		 * @param endNode the index after the last starting node
+		 * @return for each node, true if it can be reached
+		 */
+		private static boolean[] reachable(int nbNodes, int[] from, int[] to, int startNode, 
+				int endNode) {
+			//the links leaving each node
+			int[] linksStart = new int[nbNodes + 1];
+			for (int i = 0; i < from.length; i++) linksStart[from[i] + 1]++;
+			for (int v = 0; v < nbNodes; v++) linksStart[v + 1] += linksStart[v];
+			int[] next = new int[from.length];
+			int[] position = Arrays.copyOf(linksStart, nbNodes);
+			for (int i = 0; i < from.length; i++) next[position[from[i]]++] = to[i];
+			//breadth-first search
+			boolean[] reached = new boolean[nbNodes];
+			int[] queue = new int[nbNodes];
+			int queueSize = 0;
+			for (int v = startNode; v < endNode; v++) {
+				reached[v] = true;
+				queue[queueSize++] = v;
 			}
-			
+			for (int q = 0; q < queueSize; q++) {
+				int v = queue[q];
+				for (int j = linksStart[v]; j < linksStart[v + 1]; j++) {
+					if (reached[next[j]]) continue;
+					reached[next[j]] = true;
+					queue[queueSize++] = next[j];
+				}
+			}
+			return reached;
+		}
+		
+		/**
+		 * This method sorts the hidden and output nodes so that each node comes after the
+		 * nodes sending it a signal, using a depth-first search along the links arriving to
+		 * each node. If a cycle is found, or if a link arrives to an input or leaves an 
+		 * output, order stays null.
+		 */
+		private void sortNodes() {
+			for (int v = 0; v < this.nbInputs; v++) if (this.linksStart[v + 1] > 0) return;
+			for (int j = 0; j < this.origins.length; j++) {
+				if (this.origins[j] >= this.nbInputs && this.origins[j] < this.nbKept) return;
+			}
+			int[] sorted = new int[this.nbNodes - this.nbInputs];
+			int nbSorted = 0;
+			//0 : not visited, 1 : being visited, 2 : sorted
+			byte[] state = new byte[this.nbNodes];
+			//the depth of each node, -1 if no input sends it a signal
+			int[] depth = new int[this.nbNodes];
+			int[] stack = new int[this.nbNodes];
+			int[] cursor = new int[this.nbNodes];
+			for (int root = this.nbInputs; root < this.nbNodes; root++) {
+				if (state[root] != 0) continue;
+				int stackSize = 0;
+				stack[stackSize++] = root;
+				state[root] = 1;
+				cursor[root] = this.linksStart[root];
+				while (stackSize > 0) {
+					int v = stack[stackSize - 1];
+					if (cursor[v] < this.linksStart[v + 1]) {
+						int u = this.origins[cursor[v]++];
+						if (u < this.nbInputs || state[u] == 2) continue;
+						if (state[u] == 1) return; //cycle
+						state[u] = 1;
+						cursor[u] = this.linksStart[u];
+						stack[stackSize++] = u;
+					} else {
+						//all the nodes sending a signal to v are sorted
+						stackSize--;
+						state[v] = 2;
+						sorted[nbSorted++] = v;
+						depth[v] = -1;
+						for (int j = this.linksStart[v]; j < this.linksStart[v + 1]; j++) {
+							int u = this.origins[j];
+							int d = (u < this.nbInputs) ? 1 : (depth[u] < 0) ? -1 : depth[u] + 1;
+							if (d > depth[v]) depth[v] = d;
+						}
+					}
+				}
+			}
+			this.maxDepth = 0;
+			for (int v = this.nbInputs; v < this.nbKept; v++) {
+				if (depth[v] > this.maxDepth) this.maxDepth = depth[v];
+			}
+			this.order = sorted;
 		}
 		
+		/**
+		 * function that tells if the outputs can be computed in one pass. <br>
+		 * The pass computes two sums for each link, so it is only used when there are more
+		 * than FEED_FORWARD_MIN_TIME jumps.
+		 * @param time the number of jumps of the signal
+		 * @return true if there is no cycle, all the paths are complete after the jumps
+		 * and the pass is faster than the jumps
+		 */
+		boolean isFeedForward(int time) {
+			return this.order != null && time >= this.maxDepth && time > FEED_FORWARD_MIN_TIME;
+		}
+		
+		/**
+		 * This method computes the outputs in one pass along the sorted nodes. It gives the
+		 * same results as the jumps, apart from the rounding.
+		 * @param inputs the values of the inputs
+		 * @param a an array of nbNodes values, for the sums of the products along the paths
+		 * @param b an array of nbNodes values, for the same sums weighted by the length of
+		 * the paths
+		 * @param outputs the array receiving the values of the outputs
+		 * @param time the number of jumps of the signal
+		 */
+		void feedForward(float[] inputs, float[] a, float[] b, float[] outputs, int time) {
+			copyInputs(inputs, a, this.nbInputs);
+			Arrays.fill(b, 0, this.nbInputs, 0f);
+			FlexibleBrainCompiler.GeneratedCode code = this.getGeneratedCode();
+			if (code != null) code.feedForward(a, b);
+			else for (int v : this.order) {
+				float sumA = 0f;
+				float sumB = 0f;
+				for (int j = this.linksStart[v]; j < this.linksStart[v + 1]; j++) {
+					int u = this.origins[j];
+					sumA += a[u] * this.factors[j];
+					sumB += (b[u] + a[u]) * this.factors[j];
+				}
+				a[v] = sumA;
+				b[v] = sumB;
+			}
+			for (int o = 0; o < this.nbKept - this.nbInputs; o++) {
+				int v = this.nbInputs + o;
+				outputs[o] = (time + 1) * a[v] - b[v];
+			}
+		}
+		
+		/**
+		 * This function counts the computings and gives the code generated for this 
+		 * compiled form once there have been bytecodeThreshold computings.
+		 * @return the generated code, or null if the compiled form must be interpreted
+		 */
+		FlexibleBrainCompiler.GeneratedCode getGeneratedCode() {
+			if (this.generationDone) return this.generatedCode;
+			if (bytecodeThreshold < 1 || ++this.nbCalls < bytecodeThreshold) return null;
+			synchronized (this) {
+				if (!this.generationDone) {
+					this.generatedCode = FlexibleBrainCompiler.generate(this.nbKept, 
+							this.nbNodes, this.linksStart, this.origins, this.factors, 
+							this.order);
+					this.generationDone = true;
+				}
+			}
+			return this.generatedCode;
+		}
+		
+		/**
+		 * This method computes the values after a jump for all the nodes, with the 
+		 * generated code if there is one.
+		 * @param code the generated code, or null
+		 * @param source the values of the nodes before the jump
+		 * @param target the array receiving the values of the nodes after the jump
+		 */
+		void jump(FlexibleBrainCompiler.GeneratedCode code, float[] source, float[] target) {
+			if (code != null) code.jump(source, target);
+			else this.jump(source, target, 0, this.nbNodes);
+		}
+		
+		/**
+		 * This function splits the nodes in groups needing about the same amount of work
+		 * to compute, each node counting for one plus the number of links arriving to it.
+		 * @param nbGroups the number of groups
+		 * @return the index of the first node of each group, followed by the total number
+		 * of nodes
+		 */
+		int[] split(int nbGroups) {
+			int[] bounds = new int[nbGroups + 1];
+			long totalWork = (long) this.nbNodes + this.origins.length;
+			int v = 0;
+			for (int g = 1; g < nbGroups; g++) {
+				long work = totalWork * g / nbGroups;
+				while (v < this.nbNodes && v + this.linksStart[v] < work) v++;
+				bounds[g] = v;
+			}
+			bounds[nbGroups] = this.nbNodes;
+			return bounds;
+		}
+		
+		/**
+		 * This method computes the values after a jump for some of the nodes.
+		 * @param source the values of the nodes before the jump
+		 * @param target the array receiving the values of the nodes after the jump
+		 * @param startNode the index of the first node to compute
+		 * @param endNode the index after the last node to compute
+		 */
+		void jump(float[] source, float[] target, int startNode, int endNode) {
+			for (int v = startNode; v < endNode; v++) {
+				//the inputs and outputs keep their value, the hidden nodes start at 0
+				float value = (v < this.nbKept) ? source[v] : 0f;
+				for (int j = this.linksStart[v]; j < this.linksStart[v + 1]; j++) {
+					value += source[this.origins[j]] * this.factors[j];
+				}
+				target[v] = value;
+			}
+		}
 	}
 	
+	/***********************************************************************************/
+	/*                     integrated classes for multithreading                       */
+	/***********************************************************************************/
+	
 	/**
-	 * This class allows us to transmit the signal through some of the links.
+	 * This class allows us to compute a jump of the signal for a group of nodes. <br>
+	 * Each group of nodes is computed by only one thread, and the values of a node only
+	 * depend on the values before the jump, so no lock is needed. The same task is used
+	 * for all the jumps of a computing, the arrays being swapped between two jumps.
 	 * @author jrl
 	 *
 	 */
-	private class TransmitSignals implements Runnable {
-
+	private static class JumpNodes implements Runnable {
+		
 		/**
-		 * The start index of the area of action
+		 * the compiled form of the brain
 		 */
-		private int startIndex;
+		private CompiledBrain compiledBrain;
 		
 		/**
-		 * the end index of the area of action
+		 * The index of the first node of the group
 		 */
-		private int endIndex;
+		private int startNode;
 		
 		/**
-		 * boolean to decide if we must put the signal into the link or transmit it into
-		 * the next node.
+		 * The index after the last node of the group
 		 */
-		private boolean takeSignal;
+		private int endNode;
+		
+		/**
+		 * the values of the nodes before the jump
+		 */
+		private float[] source;
+		
+		/**
+		 * the values of the nodes after the jump
+		 */
+		private float[] target;
 		
 		/**
 		 * Constructor.
-		 * @param startIndex The start index of the area of action
-		 * @param endIndex the end index of the area of action
+		 * @param compiledBrain the compiled form of the brain
+		 * @param startNode The index of the first node of the group
+		 * @param endNode The index after the last node of the group
+		 * @param source the values of the nodes before the jump
+		 * @param target the values of the nodes after the jump
+		 */
+		public JumpNodes(CompiledBrain compiledBrain, int startNode, int endNode, 
+				float[] source, float[] target) {
+			this.compiledBrain = compiledBrain;
+			this.startNode = startNode;
+			this.endNode = endNode;
+			this.source = source;
+			this.target = target;
+		}
+		
+		/**
+		 * This method exchanges the source and the target, so the values after the jump
+		 * become the source of the next one.
 		 */
-		public TransmitSignals(int startIndex, int endIndex, boolean takeSignal) {
-			this.startIndex = startIndex;
-			this.endIndex = (endIndex < links.size()) ? endIndex : links.size();
-			this.takeSignal = takeSignal;
+		public void swap() {
+			float[] swap = this.source;
+			this.source = this.target;
+			this.target = swap;
 		}
 		
 		@Override
 		public void run() {
-			if (takeSignal) for (int i = startIndex; i < endIndex; i++) {
-				links.get(i).takeSignal();
-			}
-			else for (int i = startIndex; i < endIndex; i++) {
-				links.get(i).sendSignal();
-			}
+			this.compiledBrain.jump(source, target, startNode, endNode);
 		}
-		
 	}
 	
 	/***********************************************************************************/
@@ -233,10 +580,15 @@ public class FlexibleBrain extends Brain {
 	private Node[] outputs;
 	
 	/**
-	 * this ArrayList contains the links between the nodes.
+	 * this ArrayList contains the links between the nodes, sorted by innovation number.
 	 */
 	private ArrayList<Link> links;
 	
+	/**
+	 * the compiled form of the brain, or null if it must be built again
+	 */
+	private transient volatile CompiledBrain compiled;
+	
 	// working variables ----------------------------------------------------------------
 	
 	/**
@@ -245,6 +597,40 @@ public class FlexibleBrain extends Brain {
 	 */
 	private static int timeToCompute = 1;
 	
+	/**
+	 * the number of jumps for this brain, or 0 to use the global timeToCompute
+	 */
+	private int localTimeToCompute = 0;
+	
+	/**
+	 * if above 0, the jumps stop once the values of the hidden nodes change by less than
+	 * this value between two jumps
+	 */
+	private float convergence = 0f;
+	
+	/**
+	 * the number of computings of the same brain after which a class is generated for it,
+	 * or 0 to never generate classes
+	 */
+	private static int bytecodeThreshold = 0;
+	
+	/**
+	 * true if the brain keeps the values of its nodes from one computing to the next
+	 */
+	private transient boolean stateful = false;
+	
+	/**
+	 * the values of the nodes kept between two computings in stateful mode, or null if 
+	 * the brain starts from zero at the next computing
+	 */
+	private transient float[] state;
+	
+	/**
+	 * a second array for the values of the nodes in stateful mode, receiving the values 
+	 * after the jump
+	 */
+	private transient float[] nextState;
+	
 	/***********************************************************************************/
 	/*                              static functions                                   */
 	/***********************************************************************************/
@@ -258,23 +644,26 @@ public class FlexibleBrain extends Brain {
 		if (newTime > 0) FlexibleBrain.timeToCompute = newTime;
 	}
 	
-	/***********************************************************************************/
-	/*                       useful class-specific functions                           */
-	/***********************************************************************************/
-	
 	/**
-	 * function that allows to find the position of an object in an array.
-	 * @param element the searched object
-	 * @param array the array in witch we search
-	 * @return the position of the object if the object has been found, -1 otherwise.
+	 * this function allows us to change the number of computings of a brain after which
+	 * a class is generated for it. <br>
+	 * The generated class computes the brain with straight-line code instead of loops 
+	 * over the links, which is faster for the brains computed very often, like the elite
+	 * individuals kept from one generation to the next. Each class takes some memory 
+	 * until it is collected, so the threshold should be high enough to only reach these
+	 * brains. The class is shared by the copies of the brain and thrown away at the next
+	 * mutation. By default, the threshold is 0 : no class is generated.
+	 * @param threshold the number of computings before the generation, or 0 to never
+	 * generate classes. A negative threshold is taken as 0.
 	 */
-	private short seekPosition(Object element, Object[] array) {
-		for (short i = 0; i < array.length; i++) {
-			if (array[i] == element) return i;
-		}
-		return -1;
+	public static void setBytecodeThreshold(int threshold) {
+		FlexibleBrain.bytecodeThreshold = Math.max(0, threshold);
 	}
 	
+	/***********************************************************************************/
+	/*                       useful class-specific functions                           */
+	/***********************************************************************************/
+	
 	/**
 	 * find the coordinates of the extremities of a link
 	 * @param link the link we want to know about
@@ -285,14 +674,8 @@ public class FlexibleBrain extends Brain {
 	 * the place of the target node in the array
 	 */
 	private short[] getLinkCoordinates(Link link) {
-		short originPosition = seekPosition(link.origin, this.inputs);
-		short targetPosition = seekPosition(link.target, this.outputs);
-		short originArray = (short) ((originPosition == -1) ? 2 : 1);
-		short targetArray = (short) ((targetPosition == -1) ? 2 : 3);
-		//correcting the positions if needed
-		if (originPosition == -1) originPosition = seekPosition(link.origin, this.hidden);
-		if (targetPosition == -1) targetPosition = seekPosition(link.target, this.hidden);
-		return new short[] {originArray, originPosition, targetArray, targetPosition};
+		return new short[] {getNodeArray(link.origin), getNodePosition(link.origin), 
+				getNodeArray(link.target), getNodePosition(link.target)};
 	}
 	
 	/**
@@ -303,12 +686,123 @@ public class FlexibleBrain extends Brain {
 	 *  - the position of the node in the array
 	 */
 	private short[] getNodeCoordinates(Node node) {
-		short position;
-		position = seekPosition(node, this.inputs);
-		if (position != -1) return new short[] {1, position};
-		position = seekPosition(node, this.outputs);
-		if (position != -1) return new short[] {3, position};
-		return new short[] {2, seekPosition(node, this.hidden)};
+		return new short[] {getNodeArray(node), getNodePosition(node)};
+	}
+	
+	/**
+	 * finds the array containing a node, using the index of the node.
+	 * @param node the searched node
+	 * @return the number of the array containing the node (1 inputs, 2 hidden, 3 outputs)
+	 */
+	private short getNodeArray(Node node) {
+		if (node.index < this.inputs.length) return 1;
+		if (node.index < this.inputs.length + this.outputs.length) return 3;
+		return 2;
+	}
+	
+	/**
+	 * finds the position of a node in its array, using the index of the node.
+	 * @param node the searched node
+	 * @return the position of the node in the array containing it
+	 */
+	private short getNodePosition(Node node) {
+		if (node.index < this.inputs.length) return (short) node.index;
+		if (node.index < this.inputs.length + this.outputs.length) 
+			return (short) (node.index - this.inputs.length);
+		return (short) (node.index - this.inputs.length - this.outputs.length);
+	}
+	
+	/**
+	 * function that gives the node having the given index.
+	 * @param index the index of the value of the node
+	 * @return the node
+	 */
+	private Node getNode(int index) {
+		if (index < this.inputs.length) return this.inputs[index];
+		if (index < this.inputs.length + this.outputs.length) 
+			return this.outputs[index - this.inputs.length];
+		return this.hidden[index - this.inputs.length - this.outputs.length];
+	}
+	
+	/**
+	 * function that creates an array of new nodes, with the ids given to the nodes created
+	 * with a brain.
+	 * @param length the number of nodes
+	 * @param firstIndex the index of the value of the first node
+	 * @param nodeArray the number of the array (1 inputs, 2 hidden, 3 outputs)
+	 * @return the array of nodes
+	 */
+	private Node[] createNodes(int length, int firstIndex, byte nodeArray) {
+		InnovationRegistry registry = InnovationRegistry.getInstance();
+		Node[] array = new Node[length];
+		for (int i = 0; i < length; i++) {
+			array[i] = new Node(firstIndex + i, registry.initialNodeId(nodeArray, i));
+		}
+		return array;
+	}
+	
+	/**
+	 * This method adds a link at its place in the list, after the links having a smaller
+	 * or equal innovation number.
+	 * @param link the link to add
+	 */
+	private void insertLink(Link link) {
+		int low = 0;
+		int high = this.links.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.links.get(middle).innovation <= link.innovation) low = middle + 1;
+			else high = middle;
+		}
+		this.links.add(low, link);
+	}
+	
+	/**
+	 * function that gives the number of values needed to compute the brain.
+	 * @return the total number of nodes
+	 */
+	private int nbNodes() {
+		return this.inputs.length + this.outputs.length + this.hidden.length;
+	}
+	
+	/**
+	 * function that gives the compiled form of the brain, building it if needed.
+	 * @return the compiled form of the brain
+	 */
+	private CompiledBrain getCompiled() {
+		CompiledBrain result = this.compiled;
+		if (result == null) {
+			result = new CompiledBrain(this);
+			this.compiled = result;
+		}
+		return result;
+	}
+	
+	/**
+	 * This method must be called after each change of the nodes or the links, so the 
+	 * compiled form of the brain is built again before the next computing.
+	 */
+	private void invalidate() {
+		this.compiled = null;
+	}
+	
+	/**
+	 * function that gives the hash of a link, from the ids of its nodes and its factor.
+	 * @param link the link
+	 * @return the hash of the link
+	 */
+	private static long linkHash(Link link) {
+		return geneHash(((long) link.origin.id << 32) | (link.target.id & 0xFFFFFFFFL), 
+				link.factor);
+	}
+	
+	/**
+	 * function that gives the hash of a hidden node, from its id.
+	 * @param node the hidden node
+	 * @return the hash of the node
+	 */
+	private static long nodeHash(Node node) {
+		return geneHash(((long) node.id << 32) | 0xFFFFFFFFL, 0f);
 	}
 	
 	/**
@@ -333,48 +827,51 @@ public class FlexibleBrain extends Brain {
 	}
 	
 	/**
-	 * function that gives a node from her coordinates
-	 * @param nodeArray the number indicating the array containing the node (1, 2 or 3)
-	 * @param position the position of the node in the array
-	 * @return the searched node
+	 * Function that fuses the links of two brains : the links having the same innovation
+	 * number become one link. Half of the factor of the links is kept. <br>
+	 * The links of the parents are sorted by innovation number, so they are lined up in 
+	 * one pass.
+	 * @param parent1 the first brain from wich we import the links
+	 * @param parent2 the second brain from wich we import the links
+	 * @param hiddenById the hidden nodes of this brain, by id
 	 */
-	private Node decodeNode(short nodeArray, short position) {
-		switch (nodeArray) {
-		case(1):
-			return this.inputs[position];
-		case(2):
-			return this.hidden[position];
-		default:
-			return this.outputs[position];
+	private void fuseLinks(FlexibleBrain parent1, FlexibleBrain parent2, 
+			Map<Integer, Node> hiddenById) {
+		List<Link> links1 = parent1.links;
+		List<Link> links2 = parent2.links;
+		this.links = new ArrayList<>(links1.size() + links2.size());
+		int i = 0;
+		int j = 0;
+		while (i < links1.size() || j < links2.size()) {
+			int innovation = (j == links2.size() || (i < links1.size() 
+					&& links1.get(i).innovation < links2.get(j).innovation)) ?
+					links1.get(i).innovation : links2.get(j).innovation;
+			float factor = 0f;
+			//adding the factors of all the links with the same innovation number
+			Link link = null;
+			for (; i < links1.size() && links1.get(i).innovation == innovation; i++) {
+				link = links1.get(i);
+				factor += link.factor/2;
+			}
+			for (; j < links2.size() && links2.get(j).innovation == innovation; j++) {
+				link = links2.get(j);
+				factor += link.factor/2;
+			}
+			this.links.add(new Link(this.getNode(link.origin, hiddenById), 
+					this.getNode(link.target, hiddenById), factor, innovation));
 		}
 	}
 	
 	/**
-	 * Function that allows us to put links in a Map and fuse together those who have the
-	 * same origin and the same target. Half of the factor of the links is kept.
-	 * @param linksMap the Map that will assemble the new links
-	 * @param brain the exterior brain from wich we import the links
+	 * function that gives the node of this brain corresponding to the node of an other 
+	 * brain.
+	 * @param node the node of the other brain
+	 * @param hiddenById the hidden nodes of this brain, by id
+	 * @return the corresponding node
 	 */
-	private void fuseLinks(Map<String, Link> linksMap, FlexibleBrain brain) {
-		String localKey;
-		short[] coordinates;
-		Link localLink;
-		Node origin;
-		Node target;
-		for (Link link : brain.links) {
-			coordinates = brain.getLinkCoordinates(link);
-			localKey = coordinates[0] + "" + coordinates[1] 
-					+ "_" + coordinates[2] + "" + coordinates[3];
-			localLink = linksMap.get(localKey);
-			//if a link with the same coordinates exists
-			if (localLink != null) localLink.factor += link.factor/2;
-			//if the link is not already there
-			else {
-	 			origin = decodeNode(coordinates[0], coordinates[1]);
-	 			target = decodeNode(coordinates[2], coordinates[3]);
-				linksMap.put(localKey, new Link(origin, target, link.factor/2));
-			}
-		}
+	private Node getNode(Node node, Map<Integer, Node> hiddenById) {
+		if (node.index < this.inputs.length + this.outputs.length) return this.getNode(node.index);
+		return hiddenById.get(node.id);
 	}
 	
 	/***********************************************************************************/
@@ -388,17 +885,17 @@ public class FlexibleBrain extends Brain {
 	 * @param outputLength the number of output nodes
 	 */
 	public FlexibleBrain(int inputLength, int hiddenLength, int outputLength) {
-		this.inputs = new Node[inputLength];
-		for (int i = 0; i < inputLength; i++) this.inputs[i] = new Node();
-		this.hidden = new Node[hiddenLength];
-		for (int i = 0; i < hiddenLength; i++) this.hidden[i] = new Node();
-		this.outputs = new Node[outputLength];
-		for (int i = 0; i < outputLength; i++) this.outputs[i] = new Node();
+		this.inputs = createNodes(inputLength, 0, InnovationRegistry.INPUT);
+		this.outputs = createNodes(outputLength, inputLength, InnovationRegistry.OUTPUT);
+		this.hidden = createNodes(hiddenLength, inputLength + outputLength, 
+				InnovationRegistry.HIDDEN);
 		this.links = new ArrayList<>();
 	}
 
 	/**
-	 * constructor from a save.
+	 * constructor from a save. <br>
+	 * The ids and innovation numbers are not saved : the nodes get the ids of the nodes
+	 * created with a brain, and the links get their innovation numbers from these ids.
 	 * @param bb the ByteBuffer containing the datas
 	 */
 	protected FlexibleBrain(ByteBuffer bb) {
@@ -406,18 +903,17 @@ public class FlexibleBrain extends Brain {
 		int inputLength = bb.getShort();
 		int hiddenLength = bb.getShort();
 		int outputLength = bb.getShort();
-		this.inputs = new Node[inputLength];
-		for (int i = 0; i < inputLength; i++) this.inputs[i] = new Node();
-		this.hidden = new Node[hiddenLength];
-		for (int i = 0; i < hiddenLength; i++) this.hidden[i] = new Node();
-		this.outputs = new Node[outputLength];
-		for (int i = 0; i < outputLength; i++) this.outputs[i] = new Node();
+		this.inputs = createNodes(inputLength, 0, InnovationRegistry.INPUT);
+		this.outputs = createNodes(outputLength, inputLength, InnovationRegistry.OUTPUT);
+		this.hidden = createNodes(hiddenLength, inputLength + outputLength, 
+				InnovationRegistry.HIDDEN);
 		//the links
 		int nbLinks = bb.getInt();
 		this.links = new ArrayList<>(nbLinks);
 		for (int i = 0; i < nbLinks; i++) {
 			this.links.add(new Link(decodeNode(bb), decodeNode(bb), bb.getFloat()));
 		}
+		this.links.sort((link1, link2) -> Integer.compare(link1.innovation, link2.innovation));
 		//the mutations
 		if (traceMutation) this.restoreMutation(bb);
 	}
@@ -431,46 +927,77 @@ public class FlexibleBrain extends Brain {
 		int inputLength = original.inputs.length;
 		int hiddenLength = original.hidden.length;
 		int outputLength = original.outputs.length;
-		this.inputs = new Node[inputLength];
-		for (int i = 0; i < inputLength; i++) this.inputs[i] = new Node();
+		this.inputs = createNodes(inputLength, 0, InnovationRegistry.INPUT);
+		this.outputs = createNodes(outputLength, inputLength, InnovationRegistry.OUTPUT);
+		//the hidden nodes keep their ids
 		this.hidden = new Node[hiddenLength];
-		for (int i = 0; i < hiddenLength; i++) this.hidden[i] = new Node();
-		this.outputs = new Node[outputLength];
-		for (int i = 0; i < outputLength; i++) this.outputs[i] = new Node();
+		for (int i = 0; i < hiddenLength; i++) {
+			this.hidden[i] = new Node(original.hidden[i].index, original.hidden[i].id);
+		}
+		this.localTimeToCompute = original.localTimeToCompute;
+		this.convergence = original.convergence;
+		this.copyGenesHash(original);
+		//same structure, so the same compiled form and generated code
+		this.compiled = original.compiled;
 		//the links
 		this.links = new ArrayList<>(original.links.size());
 		Node origin;
 		Node target;
 		for (Link originalLink : original.links) {
- 			short[] linkCoordinates = original.getLinkCoordinates(originalLink);
- 			origin = decodeNode(linkCoordinates[0], linkCoordinates[1]);
- 			target = decodeNode(linkCoordinates[2], linkCoordinates[3]);
+			//the nodes have the same index in both brains
+ 			origin = this.getNode(originalLink.origin.index);
+ 			target = this.getNode(originalLink.target.index);
 			//add the element to the list
-			this.links.add(new Link(origin, target, originalLink.factor));
+			this.links.add(new Link(origin, target, originalLink.factor, originalLink.innovation));
 		}
 	}
 	
 	/**
 	 * Constructor to create a FlexibleBrain that mix the characteristics of the parents. <br>
-	 * The links that have the same origin and the same target will be fused together and
+	 * The links that have the same innovation number will be fused together and
 	 * those who are unique to one of the brain will be present with half of their power.
+	 * The hidden nodes used by the links of the parents are kept, the nodes having the 
+	 * same id becoming one node. Some of the unused hidden nodes are kept too, so that
+	 * the child has at least as many hidden nodes as the biggest parent.
 	 * @param parent1 the first parent
 	 * @param parent2 the second parent
 	 */
 	protected FlexibleBrain(FlexibleBrain parent1, FlexibleBrain parent2) {
 		//input and output length does not change
-		this.inputs = new Node[parent1.inputs.length];
-		for (int i = 0; i < this.inputs.length; i++) this.inputs[i] = new Node();
-		this.outputs = new Node[parent1.outputs.length];
-		for (int i = 0; i < this.outputs.length; i++) this.outputs[i] = new Node();
-		//we take the max number of nodes for the hidden layer
-		this.hidden = new Node[Math.max(parent1.hidden.length, parent2.hidden.length)];
-		for (int i = 0; i < this.hidden.length; i++) this.hidden[i] = new Node();
+		this.inputs = createNodes(parent1.inputs.length, 0, InnovationRegistry.INPUT);
+		this.outputs = createNodes(parent1.outputs.length, this.inputs.length, 
+				InnovationRegistry.OUTPUT);
+		//the hidden nodes used by the links of both parents
+		int firstIndex = this.inputs.length + this.outputs.length;
+		Set<Integer> usedIds = new HashSet<>();
+		for (FlexibleBrain parent : new FlexibleBrain[] {parent1, parent2}) {
+			for (Link link : parent.links) {
+				if (link.origin.index >= firstIndex) usedIds.add(link.origin.id);
+				if (link.target.index >= firstIndex) usedIds.add(link.target.id);
+			}
+		}
+		//we take the used hidden nodes, and unused ones up to the size of the parents
+		int nbUnused = Math.max(parent1.hidden.length, parent2.hidden.length) 
+				- usedIds.size();
+		Map<Integer, Node> hiddenById = new HashMap<>();
+		List<Node> hiddenList = new ArrayList<>();
+		for (FlexibleBrain parent : new FlexibleBrain[] {parent1, parent2}) {
+			for (Node node : parent.hidden) {
+				if (hiddenById.containsKey(node.id)) continue;
+				if (!usedIds.contains(node.id)) {
+					if (nbUnused <= 0) continue;
+					nbUnused--;
+				}
+				Node newNode = new Node(firstIndex + hiddenList.size(), node.id);
+				hiddenById.put(node.id, newNode);
+				hiddenList.add(newNode);
+			}
+		}
+		this.hidden = hiddenList.toArray(new Node[hiddenList.size()]);
 		//mixing the links
-		Map<String, Link> linksMap = new HashMap<>();
-		fuseLinks(linksMap, parent1);
-		fuseLinks(linksMap, parent2);
-		this.links = new ArrayList<>(linksMap.values());
+		this.fuseLinks(parent1, parent2, hiddenById);
+		this.localTimeToCompute = parent1.localTimeToCompute;
+		this.convergence = parent1.convergence;
 	}
 	
 	/***********************************************************************************/
@@ -509,6 +1036,47 @@ public class FlexibleBrain extends Brain {
 		return this.links;
 	}
 	
+	/**
+	 * getter used in the tests.
+	 * @return the number of links really used in the computing process
+	 */
+	int getNbComputedLinks() {
+		return this.getCompiled().origins.length;
+	}
+	
+	/**
+	 * getter used in the tests.
+	 * @return true if a class has been generated for the current form of the brain
+	 */
+	boolean hasGeneratedCode() {
+		CompiledBrain compiledBrain = this.compiled;
+		return compiledBrain != null && compiledBrain.generatedCode != null;
+	}
+	
+	@Override
+	public int getNbInputs() {
+		return this.inputs.length;
+	}
+	
+	@Override
+	public int getNbOutputs() {
+		return this.outputs.length;
+	}
+	
+	@Override
+	long computeGenesHash() {
+		long hash = 0;
+		for (Node node : this.hidden) hash += nodeHash(node);
+		for (Link link : this.links) hash += linkHash(link);
+		return hash;
+	}
+	
+	@Override
+	long structureHash() {
+		return geneHash(((long) this.inputs.length << 40) ^ ((long) this.outputs.length << 16)
+				^ this.getTimeToCompute(), this.convergence);
+	}
+	
 	/***********************************************************************************/
 	/*                       controlled mutation functions                             */
 	/***********************************************************************************/
@@ -520,10 +1088,13 @@ public class FlexibleBrain extends Brain {
 	 * @param factor the multiplicative factor of the signal
 	 */
 	void addLink(Node origin, Node target, float factor) {
-		this.links.add(new Link(origin, target, factor));
+		Link link = new Link(origin, target, factor);
+		this.insertLink(link);
+		this.invalidate();
+		this.updateGenesHash(0, linkHash(link));
 		//if we want to keep trace of the change
 		if (traceMutation) {
-			short[] coordinates = getLinkCoordinates(this.links.get(this.links.size()-1));
+			short[] coordinates = getLinkCoordinates(link);
 			this.mutations.add(new MutationAdditionLink(coordinates[0], coordinates[1], 
 					coordinates[2], coordinates[3], factor));
 		}
@@ -533,8 +1104,12 @@ public class FlexibleBrain extends Brain {
 	 * Add a new hidden node.
 	 */
 	void addNode() {
+		int id = InnovationRegistry.getInstance().addedNodeId(this.hidden.length, this.hidden);
 		this.hidden = Arrays.copyOf(this.hidden, this.hidden.length + 1);
-		this.hidden[this.hidden.length - 1] = new Node();
+		this.hidden[this.hidden.length - 1] = new Node(this.nbNodes() - 1, id);
+		this.invalidate();
+		this.updateGenesHash(0, nodeHash(this.hidden[this.hidden.length - 1]));
+		this.resetState();
 		if (traceMutation) this.mutations.add(new MutationAdditionNode(2));
 	}
 	
@@ -544,13 +1119,15 @@ public class FlexibleBrain extends Brain {
 	 */
 	void deleteLink(int position) {
 		if (traceMutation) {
-			Link link = this.links.get(position);
-			short[] coordinates = getLinkCoordinates(link);
+			Link deleted = this.links.get(position);
+			short[] coordinates = getLinkCoordinates(deleted);
 			//adding the mutation to the list
 			this.mutations.add(new MutationDeletionLink(coordinates[0], coordinates[1], 
-					coordinates[2], coordinates[3], link.factor));
+					coordinates[2], coordinates[3], deleted.factor));
 		}
-		this.links.remove(position);
+		Link link = this.links.remove(position);
+		this.invalidate();
+		this.updateGenesHash(linkHash(link), 0);
 	}
 	
 	/**
@@ -562,9 +1139,12 @@ public class FlexibleBrain extends Brain {
 		Iterator<Link> iterator = this.links.iterator();
 		while (iterator.hasNext()) {
 		    Link link = iterator.next();
-		    if (link.origin == this.hidden[position] || link.target == this.hidden[position]) 
+		    if (link.origin == this.hidden[position] || link.target == this.hidden[position]) {
 		        iterator.remove();
+		        this.updateGenesHash(linkHash(link), 0);
+		    }
 		}
+		this.updateGenesHash(nodeHash(this.hidden[position]), 0);
 		//redo the node list
 		Node[] newArray = new Node[this.hidden.length - 1];
 		int j = 0;
@@ -572,6 +1152,10 @@ public class FlexibleBrain extends Brain {
 		    if (i != position) newArray[j++] = this.hidden[i];
 		}
 		this.hidden = newArray;
+		//the values of the next nodes move by one
+		for (int i = position; i < this.hidden.length; i++) this.hidden[i].index--;
+		this.invalidate();
+		this.resetState();
 		//if we want to trace the mutations
 		if (traceMutation) {
 			this.mutations.add(new MutationDeletionNode((short) 2, (short) position));
@@ -594,7 +1178,10 @@ public class FlexibleBrain extends Brain {
 			this.mutations.add(new MutationLinkFactor(coordinates[0], coordinates[1], 
 					coordinates[2], coordinates[3], link.factor, changement));
 		}
+		long oldHash = linkHash(link);
 		link.factor += changement;
+		this.invalidate();
+		this.updateGenesHash(oldHash, linkHash(link));
 	}
 
 	@Override
@@ -605,6 +1192,7 @@ public class FlexibleBrain extends Brain {
 		Link link = this.links.get(random.nextInt(this.links.size()));
 		boolean origin = random.nextBoolean();
 		Node oldNode = (origin) ? link.origin : link.target;
+		long oldHash = linkHash(link);
 		//if we change the origin
 		if (origin) {
 			position = random.nextInt(this.inputs.length + this.hidden.length);
@@ -617,6 +1205,13 @@ public class FlexibleBrain extends Brain {
 			link.target = (position >= this.hidden.length) ?
 					this.outputs[position - this.hidden.length] : this.hidden[position];
 		}
+		//the link is a new gene
+		this.links.remove(link);
+		link.innovation = InnovationRegistry.getInstance().linkInnovation(link.origin.id, 
+				link.target.id);
+		this.insertLink(link);
+		this.invalidate();
+		this.updateGenesHash(oldHash, linkHash(link));
 		//to register the mutation
 		if (traceMutation) {
 			short[] nodeCoordinates = getNodeCoordinates(oldNode);
@@ -673,104 +1268,282 @@ public class FlexibleBrain extends Brain {
 	/*                              other functions                                    */
 	/***********************************************************************************/
 	
+	// number of jumps ------------------------------------------------------------------
+	
+	/**
+	 * this method sets the number of jumps for this brain only. The copies and the 
+	 * children of the brain keep this number.
+	 * @param newTime the number of jumps, or 0 to use the global number given by 
+	 * setTimeToCompute. A negative number is ignored.
+	 */
+	public void setLocalTimeToCompute(int newTime) {
+		if (newTime >= 0) this.localTimeToCompute = newTime;
+	}
+	
+	/**
+	 * getter for the number of jumps of this brain
+	 * @return the number of jumps made at each computing
+	 */
+	public int getTimeToCompute() {
+		return (this.localTimeToCompute > 0) ? this.localTimeToCompute : timeToCompute;
+	}
+	
+	/**
+	 * setter for the convergence mode. <br>
+	 * In this mode, the jumps stop as soon as no hidden node changes by more than epsilon
+	 * during a jump, the number of jumps being the maximum. The outputs then receive the 
+	 * signal of the last jump for each of the remaining jumps, so a brain whose hidden 
+	 * nodes are stable gives the same results with fewer jumps. The copies and the 
+	 * children of the brain keep this setting.
+	 * @param epsilon the maximum change of the hidden nodes to stop, or 0 to always make
+	 * all the jumps
+	 */
+	public void setConvergence(float epsilon) {
+		this.convergence = Math.max(0f, epsilon);
+	}
+	
+	// stateful mode --------------------------------------------------------------------
+	
+	/**
+	 * setter for the stateful mode. <br>
+	 * In stateful mode, each computing makes the signal jump only once, starting from the
+	 * values of the hidden nodes left by the previous computing, so a recurrent brain can
+	 * follow a series of inputs step by step. The outputs give the signal received during
+	 * the jump. <br>
+	 * The values are stored in the brain : in this mode, a brain must not be computed by 
+	 * several threads at the same time.
+	 * @param stateful true to keep the values between the computings, false to start 
+	 * from zero at each computing
+	 */
+	public void setStateful(boolean stateful) {
+		this.stateful = stateful;
+		this.resetState();
+	}
+	
+	/**
+	 * getter for the stateful mode
+	 * @return true if the brain keeps the values of its nodes between the computings
+	 */
+	public boolean isStateful() {
+		return this.stateful;
+	}
+	
+	/**
+	 * This method forgets the values kept in stateful mode : the next computing will
+	 * start with all the nodes at zero. It is also called when a node is added or deleted.
+	 */
+	public void resetState() {
+		this.state = null;
+		this.nextState = null;
+	}
+	
+	/**
+	 * Private function putting the inputs in the first values of the nodes. If there are
+	 * less inputs than input nodes, the remaining input nodes get 0.
+	 * @param inputs the values to inject in the brain
+	 * @param values the values of the nodes
+	 * @param nbInputs the number of input nodes
+	 */
+	private static void copyInputs(float[] inputs, float[] values, int nbInputs) {
+		int length = Math.min(inputs.length, nbInputs);
+		System.arraycopy(inputs, 0, values, 0, length);
+		Arrays.fill(values, length, nbInputs, 0f);
+	}
+	
+	/**
+	 * Computing function for the stateful mode : the signal jumps once from the kept 
+	 * values.
+	 * @param inputs an array containing the values to inject in the brain
+	 * @param outputs the array receiving the results
+	 */
+	private void computeStateful(float[] inputs, float[] outputs) {
+		CompiledBrain compiledBrain = this.getCompiled();
+		if (this.state == null) {
+			this.state = new float[compiledBrain.nbNodes];
+			this.nextState = new float[compiledBrain.nbNodes];
+		}
+		//the outputs only give what they receive during this jump
+		copyInputs(inputs, this.state, this.inputs.length);
+		Arrays.fill(this.state, this.inputs.length, compiledBrain.nbKept, 0f);
+		compiledBrain.jump(compiledBrain.getGeneratedCode(), this.state, this.nextState);
+		System.arraycopy(this.nextState, this.inputs.length, outputs, 0, this.outputs.length);
+		//the new values are kept for the next computing
+		float[] swap = this.state;
+		this.state = this.nextState;
+		this.nextState = swap;
+	}
+	
+	// computing ------------------------------------------------------------------------
+	
 	@Override
-	public float[] compute(float[] inputs) {
-		//assign the inputs value into the inputs nodes
-		for (int i = 0 ; i < inputs.length; i++) this.inputs[i].value = inputs[i];
-		
-		//deciding if we use multiple threads
-		int nbThreads = (Brain.maxUsableCores < Runtime.getRuntime().availableProcessors()) ?
-				Brain.maxUsableCores : Runtime.getRuntime().availableProcessors();
-		
-		if (nbThreads == 1) return computeOneThread();
-		else return computeMultipleThreads(nbThreads);
+	public void compute(float[] inputs, float[] outputs) {
+		if (this.stateful) {
+			this.computeStateful(inputs, outputs);
+			return;
+		}
+		ComputingScratch scratch = ComputingScratch.acquire();
+		try {
+			//the values of the nodes before and after each jump
+			int nbNodes = this.nbNodes();
+			float[] source = scratch.buffer(0, nbNodes);
+			float[] target = scratch.buffer(1, nbNodes);
+			//without cycle, one pass is enough
+			CompiledBrain compiledBrain = this.getCompiled();
+			int time = this.getTimeToCompute();
+			if (compiledBrain.isFeedForward(time)) {
+				compiledBrain.feedForward(inputs, source, target, outputs, time);
+				return;
+			}
+			//assign the inputs value into the inputs nodes, the other nodes start at 0
+			copyInputs(inputs, source, this.inputs.length);
+			Arrays.fill(source, this.inputs.length, nbNodes, 0f);
+			
+			//deciding if the brain is big enough for multiple threads
+			int nbThreads = ComputingPool.getInstance().chooseNbThreads(
+					(long) compiledBrain.nbNodes + compiledBrain.origins.length);
+			
+			if (nbThreads == 1) source = computeOneThread(source, target);
+			else source = computeMultipleThreads(nbThreads, source, target);
+			
+			//transmitting the outputs value into the given array
+			System.arraycopy(source, this.inputs.length, outputs, 0, this.outputs.length);
+		} finally {
+			scratch.release();
+		}
 	}
 	
 	/**
-	 * Computinf function made to function using multiple threads
+	 * Computinf function made to function using multiple threads. <br>
+	 * The nodes are split between the threads, each thread computing the new values of
+	 * its own nodes.
 	 * @param nbThreads the number of threads that will be used
-	 * @return an array of outputs
-	 */
-	private float[] computeMultipleThreads(int nbThreads) {
-		int linksChunkSize = (this.links.size() / nbThreads) + 1;
-		int hiddenChunkSize = (this.hidden.length / nbThreads) + 1;
-		int outputsChunkSize = (this.outputs.length / nbThreads) + 1;
-		int nbLinksIterations = (this.links.size() < nbThreads) ? this.links.size() : nbThreads;
-		int nbHiddenIterations = (this.hidden.length < nbThreads) ? this.links.size() : nbThreads;
-		int nbOutputsIterations = (this.outputs.length < nbThreads) ? this.links.size() : nbThreads;
+	 * @param source the values of the nodes at the beginning
+	 * @param target an array of the same size to store the values after each jump
+	 * @return the array containing the values of the nodes at the end
+	 */
+	private float[] computeMultipleThreads(int nbThreads, float[] source, float[] target) {
+		CompiledBrain compiledBrain = this.getCompiled();
+		int[] bounds = compiledBrain.split(nbThreads);
+		//the tasks are created once and run on the shared pool for each jump
+		JumpNodes[] tasks = new JumpNodes[nbThreads];
+		for (int i = 0; i < nbThreads; i++) {
+			tasks[i] = new JumpNodes(compiledBrain, bounds[i], bounds[i + 1], source, target);
+		}
 
 		//transmission of the signal
-		for (int i = 0 ; i < timeToCompute ; i++) {
-			//taking the signal inside the links
-			this.transmitSignals(nbThreads, linksChunkSize, nbLinksIterations, true);
-			//resetting the value in the hidden nodes
-			this.resetNodeArray(this.hidden, nbThreads, hiddenChunkSize, nbHiddenIterations);
-			//sending the signal in the next node
-			this.transmitSignals(nbThreads, linksChunkSize, nbLinksIterations, false);
+		int time = this.getTimeToCompute();
+		for (int i = 0 ; i < time ; i++) {
+			ComputingPool.getInstance().runAll(tasks);
+			for (JumpNodes task : tasks) task.swap();
+			if (this.hasConverged(source, target, time - i - 1)) return target;
+			//the new values become the source of the next jump
+			float[] swap = source;
+			source = target;
+			target = swap;
 		}
-		//transmitting the outputs value into a new array (just to be safe)
-		float[] outputsCopy = new float[this.outputs.length];
-		for (int i = 0 ; i < this.outputs.length; i++) outputsCopy[i] = this.outputs[i].value;
-		//resetting the outputs and the hidden nodes
-		this.resetNodeArray(this.hidden, nbThreads, hiddenChunkSize, nbHiddenIterations);
-		this.resetNodeArray(this.outputs, nbThreads, outputsChunkSize, nbOutputsIterations);
-		return outputsCopy;
+		return source;
 	}
 	
 	/**
 	 * Computing function optimised for the usage of one thread.
-	 * @return an array of outputs
+	 * @param source the values of the nodes at the beginning
+	 * @param target an array of the same size to store the values after each jump
+	 * @return the array containing the values of the nodes at the end
 	 */
-	private float[] computeOneThread() {
+	private float[] computeOneThread(float[] source, float[] target) {
+		CompiledBrain compiledBrain = this.getCompiled();
+		FlexibleBrainCompiler.GeneratedCode code = compiledBrain.getGeneratedCode();
 		//transmission of the signal
-		for (int i = 0 ; i < timeToCompute ; i++) {
-			//taking the signal inside the links
-			for (Link link : this.links) link.takeSignal();
-			//resetting the value in the hidden nodes
-			for (int j = 0 ; j < this.hidden.length; j++) this.hidden[j].value = 0f;
-			//sending the signal in the next node
-			for (Link link : this.links) link.sendSignal();
+		int time = this.getTimeToCompute();
+		for (int i = 0 ; i < time ; i++) {
+			compiledBrain.jump(code, source, target);
+			if (this.hasConverged(source, target, time - i - 1)) return target;
+			//the new values become the source of the next jump
+			float[] swap = source;
+			source = target;
+			target = swap;
 		}
-		//transmitting the outputs value into a new array (just to be safe)
-		float[] outputsCopy = new float[this.outputs.length];
-		for (int i = 0 ; i < this.outputs.length; i++) outputsCopy[i] = this.outputs[i].value;
-		//resetting the outputs and the hidden nodes
-		for (int i = 0 ; i < this.hidden.length; i++) this.hidden[i].value = 0f;
-		for (int i = 0 ; i < this.outputs.length; i++) this.outputs[i].value = 0f;
-		return outputsCopy;
+		return source;
 	}
 	
 	/**
-	 * This function allows us transmit the signal through the links using the full power
-	 * of our computer.
+	 * This function checks if the values of the hidden nodes have converged, when the 
+	 * convergence mode is used. <br>
+	 * If the hidden nodes keep the same values, the outputs will receive the same signal 
+	 * at each of the remaining jumps, so it is added directly.
+	 * @param previous the values of the nodes before the last jump
+	 * @param current the values of the nodes after the last jump
+	 * @param remaining the number of jumps left
+	 * @return true if the values have converged, the outputs in current being the final
+	 * ones
 	 */
-	private void transmitSignals(int nbThreads, int chunkSize, int nbIterations, boolean takeSignal) {
-        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
-		for (int i = 0; i < nbIterations; i++) {
-			int startIndex = i * chunkSize;
-			int endIndex = startIndex + chunkSize;
-        	executor.execute(new TransmitSignals(startIndex, endIndex, takeSignal));
+	private boolean hasConverged(float[] previous, float[] current, int remaining) {
+		if (this.convergence <= 0f || remaining == 0) return false;
+		int nbKept = this.inputs.length + this.outputs.length;
+		int nbNodes = nbKept + this.hidden.length;
+		for (int v = nbKept; v < nbNodes; v++) {
+			if (!(Math.abs(current[v] - previous[v]) < this.convergence)) return false;
 		}
-        executor.shutdown();
-        while (!executor.isTerminated()) {/*wait for the operation to finish*/}
+		for (int v = this.inputs.length; v < nbKept; v++) {
+			current[v] += (current[v] - previous[v]) * remaining;
+		}
+		return true;
 	}
 	
 	/**
-	 * This method allows us to reset the value of an array of links using the full
-	 * power of our computer.
-	 * @param nodeArray the array of nodes to reset.
+	 * This function gives the compatibility distance between two brains, as in the NEAT
+	 * algorithm : c1 * E / N + c2 * D / N + c3 * W, where E is the number of excess genes,
+	 * D the number of disjoint genes, W the mean difference of factor between the matching
+	 * genes and N the number of genes of the biggest brain. <br>
+	 * The links having the same innovation number in a brain count as one gene, with the
+	 * sum of their factors.
+	 * @param other the brain to compare with
+	 * @param excessFactor the weight c1 of the excess genes
+	 * @param disjointFactor the weight c2 of the disjoint genes
+	 * @param factorDifference the weight c3 of the differences of factors
+	 * @return the compatibility distance
 	 */
-	private void resetNodeArray(Node[] nodeArray, int nbThreads, int chunkSize, int nbIterations) {
-        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
-		for (int i = 0; i < nbIterations; i++) {
-			int startIndex = i * chunkSize;
-			int endIndex = startIndex + chunkSize;
-        	executor.execute(new ResetNodes(nodeArray, startIndex, endIndex));
+	public float compatibilityDistance(FlexibleBrain other, float excessFactor, 
+			float disjointFactor, float factorDifference) {
+		List<Link> links1 = this.links;
+		List<Link> links2 = other.links;
+		int nbGenes1 = 0;
+		int nbGenes2 = 0;
+		int nbDisjoint = 0;
+		int nbExcess = 0;
+		int nbMatching = 0;
+		float totalDifference = 0f;
+		int i = 0;
+		int j = 0;
+		while (i < links1.size() || j < links2.size()) {
+			int innovation1 = (i < links1.size()) ? links1.get(i).innovation : Integer.MAX_VALUE;
+			int innovation2 = (j < links2.size()) ? links2.get(j).innovation : Integer.MAX_VALUE;
+			int innovation = Math.min(innovation1, innovation2);
+			float factor1 = 0f;
+			float factor2 = 0f;
+			for (; i < links1.size() && links1.get(i).innovation == innovation; i++) {
+				factor1 += links1.get(i).factor;
+			}
+			for (; j < links2.size() && links2.get(j).innovation == innovation; j++) {
+				factor2 += links2.get(j).factor;
+			}
+			if (innovation1 == innovation2) {
+				nbMatching++;
+				totalDifference += Math.abs(factor1 - factor2);
+			}
+			//a gene after the end of the other brain is an excess gene
+			else if (i == links1.size() && innovation2 == innovation || 
+					j == links2.size() && innovation1 == innovation) nbExcess++;
+			else nbDisjoint++;
+			if (innovation1 == innovation) nbGenes1++;
+			if (innovation2 == innovation) nbGenes2++;
 		}
-        executor.shutdown();
-        while (!executor.isTerminated()) {/*wait for the operation to finish*/}
+		int nbGenes = Math.max(1, Math.max(nbGenes1, nbGenes2));
+		float meanDifference = (nbMatching == 0) ? 0f : totalDifference / nbMatching;
+		return excessFactor * nbExcess / nbGenes + disjointFactor * nbDisjoint / nbGenes 
+				+ factorDifference * meanDifference;
 	}
-
+	
 	@Override
 	public byte[] toBytes() {
 		//calcul of the data length
@@ -785,8 +1558,8 @@ public class FlexibleBrain extends Brain {
 		bb.putInt(size); //number of links
 		//loop for each link
 		for (Link link : this.links) {
-			this.writeNode(bb, link.origin, true); // origin node
-			this.writeNode(bb, link.target, false); //target node
+			this.writeNode(bb, link.origin); // origin node
+			this.writeNode(bb, link.target); //target node
 			bb.putFloat(link.factor); //factor
 		}
 		//if we need to save the mutations
@@ -801,21 +1574,10 @@ public class FlexibleBrain extends Brain {
 	 * this function allows to find the 3 bytes to describe a node.
 	 * @param bb the ByteBuffer that will contain the informations about the brain
 	 * @param node the node we want to encode
-	 * @param origin true if the node is the origin node of the link, false if it 
-	 * is the target node.
 	 */
-	private void writeNode(ByteBuffer bb, Node node, boolean origin) {
-		Node[] array = (origin) ? this.inputs : this.outputs;
-		byte arrayByte = (byte) ((origin) ? 1 : 3);
-		Short position = seekPosition(node, array);
-		if (position != -1) {
-			bb.put(arrayByte);
-			bb.putShort(position);
-		}
-		else {
-			bb.put((byte) 2);
-			bb.putShort(seekPosition(node, this.hidden));
-		}
+	private void writeNode(ByteBuffer bb, Node node) {
+		bb.put((byte) getNodeArray(node));
+		bb.putShort(getNodePosition(node));
 	}
 
 }
@@ -0,0 +1,545 @@
+package brain;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class turns the compiled form of a FlexibleBrain into a class made for it. <br>
+ * The generated class contains straight-line arithmetic : one instruction sequence for
+ * each link, with the indexes of the nodes and the factors written as constants, and no
+ * loop. The JIT can then compile it into a few machine instructions by link. <br>
+ * The class is written directly in the classfile format and loaded as a hidden class, so
+ * it is unloaded when the brain does not use it anymore. The code is split in methods
+ * small enough to be compiled by the JIT : a node with too many links is computed in 
+ * several steps, each step adding its links to the value stored by the previous one.
+ *
+ * @author jrl
+ *
+ */
+final class FlexibleBrainCompiler {
+
+	/**
+	 * The code generated for a brain.
+	 * @author jrl
+	 *
+	 */
+	interface GeneratedCode {
+
+		/**
+		 * computes a jump of the signal for all the nodes, as CompiledBrain.jump.
+		 * @param source the values of the nodes before the jump
+		 * @param target the array receiving the values of the nodes after the jump
+		 */
+		void jump(float[] source, float[] target);
+
+		/**
+		 * computes the two sums of the pass along the sorted nodes, as
+		 * CompiledBrain.feedForward, the inputs being already in a and b.
+		 * @param a the sums of the products along the paths
+		 * @param b the same sums weighted by the length of the paths
+		 */
+		void feedForward(float[] a, float[] b);
+	}
+
+	/**
+	 * Private interface writing the instructions adding one link to a sum.
+	 */
+	@FunctionalInterface
+	private interface LinkWriter {
+
+		/**
+		 * writes the instructions adding a link to the sum on the stack.
+		 * @param code the instructions
+		 * @param link the position of the link
+		 * @throws IOException never, the class is written in memory
+		 */
+		void write(ByteArrayOutputStream code, int link) throws IOException;
+	}
+
+	/**
+	 * the maximum number of links of a brain to generate its code
+	 */
+	static final int MAX_LINKS = 50000;
+
+	/**
+	 * the size of code above which a method is split, under the size of the methods that
+	 * the JIT refuses to compile
+	 */
+	private static final int MAX_METHOD_SIZE = 7000;
+
+	/**
+	 * the name of the generated class, in the package of this class
+	 */
+	private static final String CLASS_NAME = "brain/GeneratedBrain";
+
+	/**
+	 * the descriptor of the methods taking two arrays of floats
+	 */
+	private static final String ARRAYS_DESCRIPTOR = "([F[F)V";
+
+	//the instructions used in the generated code
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int ALOAD_2 = 0x2c;
+	private static final int ICONST_0 = 0x03;
+	private static final int FCONST_0 = 0x0b;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int LDC = 0x12;
+	private static final int LDC_W = 0x13;
+	private static final int FALOAD = 0x30;
+	private static final int FASTORE = 0x51;
+	private static final int FADD = 0x62;
+	private static final int FMUL = 0x6a;
+	private static final int RETURN = 0xb1;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKESTATIC = 0xb8;
+
+	/**
+	 * the constant pool of the class being written
+	 */
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+
+	/**
+	 * the constant pool of the class being written, as a stream
+	 */
+	private final DataOutputStream poolData = new DataOutputStream(pool);
+
+	/**
+	 * the number of entries of the constant pool, plus one
+	 */
+	private int poolSize = 1;
+
+	/**
+	 * the entries of the constant pool already written
+	 */
+	private final Map<String, Integer> entries = new HashMap<>();
+
+	/**
+	 * the methods of the class being written
+	 */
+	private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+
+	/**
+	 * the number of methods of the class being written
+	 */
+	private int nbMethods = 0;
+
+	/**
+	 * the size of the code of the largest method written
+	 */
+	private int largestMethod = 0;
+
+	/**
+	 * Private constructor, a compiler is created for each class.
+	 */
+	private FlexibleBrainCompiler() {}
+
+	/**
+	 * This function generates the code of a brain. <br>
+	 * The links arriving to the node v are between linksStart[v] and linksStart[v+1].
+	 * @param nbKept the number of nodes keeping their value from one jump to the next
+	 * @param nbNodes the total number of nodes
+	 * @param linksStart the position of the first link arriving to each node
+	 * @param origins the index of the origin node of each link
+	 * @param factors the multiplicative factor of each link
+	 * @param order the hidden and output nodes sorted for the pass, or null if there is
+	 * no pass
+	 * @return the generated code, or null if it could not be generated
+	 */
+	static GeneratedCode generate(int nbKept, int nbNodes, int[] linksStart, int[] origins,
+			float[] factors, int[] order) {
+		if (origins.length > MAX_LINKS) return null;
+		try {
+			FlexibleBrainCompiler compiler = new FlexibleBrainCompiler();
+			byte[] classBytes = compiler.writeClass(nbKept, nbNodes, linksStart, origins,
+					factors, order);
+			MethodHandles.Lookup lookup = MethodHandles.lookup()
+					.defineHiddenClass(classBytes, true);
+			return (GeneratedCode) lookup.lookupClass().getDeclaredConstructor().newInstance();
+		} catch (IOException e) {
+			//the brain is too large for a class, the interpreted computing is still there
+			return null;
+		} catch (ReflectiveOperationException | IllegalArgumentException | ClassFormatError 
+				| VerifyError e) {
+			//a mistake in the generated class, the interpreted computing is still there
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * This function gives the size of the largest method of the class generated for a
+	 * brain, used in the tests.
+	 * @return the size of the code of the largest method, in bytes
+	 * @throws IOException if the class can not be written
+	 */
+	static int largestMethodSize(int nbKept, int nbNodes, int[] linksStart, int[] origins,
+			float[] factors, int[] order) throws IOException {
+		FlexibleBrainCompiler compiler = new FlexibleBrainCompiler();
+		compiler.writeClass(nbKept, nbNodes, linksStart, origins, factors, order);
+		return compiler.largestMethod;
+	}
+
+	/**
+	 * This function writes the whole class.
+	 * @return the bytes of the class
+	 * @throws IOException never, the class is written in memory
+	 */
+	private byte[] writeClass(int nbKept, int nbNodes, int[] linksStart, int[] origins,
+			float[] factors, int[] order) throws IOException {
+		int thisClass = this.classEntry(CLASS_NAME);
+		int superClass = this.classEntry("java/lang/Object");
+		int interfaceClass = this.classEntry("brain/FlexibleBrainCompiler$GeneratedCode");
+		//constructor
+		ByteArrayOutputStream code = new ByteArrayOutputStream();
+		code.write(ALOAD_0);
+		code.write(INVOKESPECIAL);
+		writeShort(code, this.methodEntry("java/lang/Object", "<init>", "()V"));
+		code.write(RETURN);
+		this.writeMethod(0x0001, "<init>", "()V", 1, 1, code);
+		//the jump
+		List<ByteArrayOutputStream> parts = new ArrayList<>();
+		ByteArrayOutputStream part = new ByteArrayOutputStream();
+		LinkWriter jumpLink = (linkCode, j) -> {
+			//+ source[u] * factor
+			linkCode.write(ALOAD_0);
+			this.pushInt(linkCode, origins[j]);
+			linkCode.write(FALOAD);
+			this.pushFloat(linkCode, factors[j]);
+			linkCode.write(FMUL);
+			linkCode.write(FADD);
+		};
+		for (int v = 0; v < nbNodes; v++) {
+			//target[v] = (kept ? source[v] : 0) + source[u] * factor ...
+			ByteArrayOutputStream init = new ByteArrayOutputStream();
+			if (v < nbKept) {
+				init.write(ALOAD_0);
+				this.pushInt(init, v);
+				init.write(FALOAD);
+			} else init.write(FCONST_0);
+			part = this.addSum(parts, part, ALOAD_1, v, init, linksStart[v], 
+					linksStart[v + 1], jumpLink);
+		}
+		parts.add(part);
+		this.writeParts("jump", parts);
+		//the pass along the sorted nodes
+		parts.clear();
+		part = new ByteArrayOutputStream();
+		ByteArrayOutputStream zero = new ByteArrayOutputStream();
+		zero.write(FCONST_0);
+		LinkWriter aLink = (linkCode, j) -> {
+			//+ a[u] * factor
+			linkCode.write(ALOAD_0);
+			this.pushInt(linkCode, origins[j]);
+			linkCode.write(FALOAD);
+			this.pushFloat(linkCode, factors[j]);
+			linkCode.write(FMUL);
+			linkCode.write(FADD);
+		};
+		LinkWriter bLink = (linkCode, j) -> {
+			//+ (b[u] + a[u]) * factor
+			linkCode.write(ALOAD_1);
+			this.pushInt(linkCode, origins[j]);
+			linkCode.write(FALOAD);
+			linkCode.write(ALOAD_0);
+			this.pushInt(linkCode, origins[j]);
+			linkCode.write(FALOAD);
+			linkCode.write(FADD);
+			this.pushFloat(linkCode, factors[j]);
+			linkCode.write(FMUL);
+			linkCode.write(FADD);
+		};
+		if (order != null) for (int v : order) {
+			//a[v] = 0 + a[u] * factor ...
+			part = this.addSum(parts, part, ALOAD_0, v, zero, linksStart[v], 
+					linksStart[v + 1], aLink);
+			//b[v] = 0 + (b[u] + a[u]) * factor ...
+			part = this.addSum(parts, part, ALOAD_1, v, zero, linksStart[v], 
+					linksStart[v + 1], bLink);
+		}
+		parts.add(part);
+		this.writeParts("feedForward", parts);
+
+		//assembling the class
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+		data.writeInt(0xCAFEBABE);
+		data.writeShort(0); //minor version
+		data.writeShort(61); //major version (Java 17)
+		data.writeShort(this.poolSize);
+		data.write(this.pool.toByteArray());
+		data.writeShort(0x0030); //final super
+		data.writeShort(thisClass);
+		data.writeShort(superClass);
+		data.writeShort(1); //interfaces
+		data.writeShort(interfaceClass);
+		data.writeShort(0); //fields
+		data.writeShort(this.nbMethods);
+		data.write(this.methods.toByteArray());
+		data.writeShort(0); //attributes
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * This function adds the code storing a sum of links in array[v] to the current 
+	 * part. <br>
+	 * If the links do not fit in one method, the sum is made in several steps : the 
+	 * first one stores the sum of the first links, and each next one loads the stored 
+	 * value, adds its links and stores it again. The additions are made in the same 
+	 * order, so the result is exactly the same.
+	 * @param parts the full parts
+	 * @param part the current part
+	 * @param loadArray the instruction loading the array receiving the sum
+	 * @param v the position of the sum in the array
+	 * @param init the instructions putting the initial value of the sum on the stack
+	 * @param start the position of the first link of the sum
+	 * @param end the position after the last link of the sum
+	 * @param linkWriter the instructions adding one link to the sum
+	 * @return the new current part
+	 * @throws IOException never, the class is written in memory
+	 */
+	private ByteArrayOutputStream addSum(List<ByteArrayOutputStream> parts,
+			ByteArrayOutputStream part, int loadArray, int v, ByteArrayOutputStream init,
+			int start, int end, LinkWriter linkWriter) throws IOException {
+		ByteArrayOutputStream step = new ByteArrayOutputStream();
+		step.write(loadArray);
+		this.pushInt(step, v);
+		init.writeTo(step);
+		ByteArrayOutputStream linkCode = new ByteArrayOutputStream();
+		for (int j = start; j < end; j++) {
+			linkCode.reset();
+			linkWriter.write(linkCode, j);
+			if (step.size() + linkCode.size() + 1 > MAX_METHOD_SIZE) {
+				//this step is full, the next one continues from the stored value
+				step.write(FASTORE);
+				part = this.addToPart(parts, part, step);
+				step = new ByteArrayOutputStream();
+				step.write(loadArray);
+				this.pushInt(step, v);
+				step.write(loadArray);
+				this.pushInt(step, v);
+				step.write(FALOAD);
+			}
+			linkCode.writeTo(step);
+		}
+		step.write(FASTORE);
+		return this.addToPart(parts, part, step);
+	}
+
+	/**
+	 * This function adds the code of a node to the current part, starting a new part if
+	 * the current one is full.
+	 * @param parts the full parts
+	 * @param part the current part
+	 * @param nodeCode the code of the node, at most MAX_METHOD_SIZE bytes
+	 * @return the new current part
+	 * @throws IOException never, the class is written in memory
+	 */
+	private ByteArrayOutputStream addToPart(List<ByteArrayOutputStream> parts,
+			ByteArrayOutputStream part, ByteArrayOutputStream nodeCode) throws IOException {
+		if (part.size() > 0 && part.size() + nodeCode.size() > MAX_METHOD_SIZE) {
+			parts.add(part);
+			part = new ByteArrayOutputStream();
+		}
+		nodeCode.writeTo(part);
+		return part;
+	}
+
+	/**
+	 * This method writes the parts of a method as static methods, and the public method
+	 * calling them one after the other.
+	 * @param name the name of the public method
+	 * @param parts the code of the parts, using the two arrays in the locals 0 and 1
+	 * @throws IOException never, the class is written in memory
+	 */
+	private void writeParts(String name, List<ByteArrayOutputStream> parts) throws IOException {
+		ByteArrayOutputStream code = new ByteArrayOutputStream();
+		for (int i = 0; i < parts.size(); i++) {
+			ByteArrayOutputStream part = parts.get(i);
+			if (part.size() > 0xFFFF - 1) throw new IOException("method too large");
+			part.write(RETURN);
+			this.writeMethod(0x000A, name + i, ARRAYS_DESCRIPTOR, 8, 2, part); //private static
+			code.write(ALOAD_1);
+			code.write(ALOAD_2);
+			code.write(INVOKESTATIC);
+			writeShort(code, this.methodEntry(CLASS_NAME, name + i, ARRAYS_DESCRIPTOR));
+		}
+		code.write(RETURN);
+		this.writeMethod(0x0001, name, ARRAYS_DESCRIPTOR, 2, 3, code);
+	}
+
+	/**
+	 * This method writes a method with its code.
+	 * @param access the access flags
+	 * @param name the name of the method
+	 * @param descriptor the descriptor of the method
+	 * @param maxStack the maximum size of the stack
+	 * @param maxLocals the number of local variables
+	 * @param code the instructions
+	 * @throws IOException never, the class is written in memory
+	 */
+	private void writeMethod(int access, String name, String descriptor, int maxStack,
+			int maxLocals, ByteArrayOutputStream code) throws IOException {
+		DataOutputStream data = new DataOutputStream(this.methods);
+		data.writeShort(access);
+		data.writeShort(this.utf8Entry(name));
+		data.writeShort(this.utf8Entry(descriptor));
+		data.writeShort(1); //attributes
+		data.writeShort(this.utf8Entry("Code"));
+		data.writeInt(12 + code.size());
+		data.writeShort(maxStack);
+		data.writeShort(maxLocals);
+		data.writeInt(code.size());
+		code.writeTo(data);
+		this.largestMethod = Math.max(this.largestMethod, code.size());
+		data.writeShort(0); //exceptions
+		data.writeShort(0); //attributes
+		this.nbMethods++;
+	}
+
+	/**
+	 * This method writes the instructions putting an int on the stack.
+	 * @param code the instructions
+	 * @param value the int
+	 * @throws IOException never, the class is written in memory
+	 */
+	private void pushInt(ByteArrayOutputStream code, int value) throws IOException {
+		if (value <= 5) code.write(ICONST_0 + value);
+		else if (value < 128) {
+			code.write(BIPUSH);
+			code.write(value);
+		} else if (value < 32768) {
+			code.write(SIPUSH);
+			writeShort(code, value);
+		} else this.loadConstant(code, this.constantEntry("I" + value, 3, value));
+	}
+
+	/**
+	 * This method writes the instructions putting a float on the stack.
+	 * @param code the instructions
+	 * @param value the float
+	 * @throws IOException never, the class is written in memory
+	 */
+	private void pushFloat(ByteArrayOutputStream code, float value) throws IOException {
+		int bits = Float.floatToRawIntBits(value);
+		if (bits == 0) code.write(FCONST_0);
+		else this.loadConstant(code, this.constantEntry("F" + bits, 4, bits));
+	}
+
+	/**
+	 * This method writes the instruction loading a constant of the pool.
+	 * @param code the instructions
+	 * @param index the index of the constant in the pool
+	 */
+	private void loadConstant(ByteArrayOutputStream code, int index) {
+		if (index < 256) {
+			code.write(LDC);
+			code.write(index);
+		} else {
+			code.write(LDC_W);
+			writeShort(code, index);
+		}
+	}
+
+	/**
+	 * This function gives the index of an int or float constant, adding it to the pool
+	 * if needed.
+	 * @param key the key of the constant in the entries
+	 * @param tag the tag of the constant (3 for an int, 4 for a float)
+	 * @param bits the bits of the constant
+	 * @return the index of the constant in the pool
+	 * @throws IOException never, the class is written in memory
+	 */
+	private int constantEntry(String key, int tag, int bits) throws IOException {
+		Integer index = this.entries.get(key);
+		if (index != null) return index;
+		this.poolData.writeByte(tag);
+		this.poolData.writeInt(bits);
+		return this.newEntry(key);
+	}
+
+	/**
+	 * This function gives the index of a string of the pool, adding it if needed.
+	 * @param value the string
+	 * @return the index of the string in the pool
+	 * @throws IOException never, the class is written in memory
+	 */
+	private int utf8Entry(String value) throws IOException {
+		Integer index = this.entries.get("U" + value);
+		if (index != null) return index;
+		this.poolData.writeByte(1);
+		this.poolData.writeUTF(value);
+		return this.newEntry("U" + value);
+	}
+
+	/**
+	 * This function gives the index of a class of the pool, adding it if needed.
+	 * @param name the internal name of the class
+	 * @return the index of the class in the pool
+	 * @throws IOException never, the class is written in memory
+	 */
+	private int classEntry(String name) throws IOException {
+		Integer index = this.entries.get("C" + name);
+		if (index != null) return index;
+		int nameIndex = this.utf8Entry(name);
+		this.poolData.writeByte(7);
+		this.poolData.writeShort(nameIndex);
+		return this.newEntry("C" + name);
+	}
+
+	/**
+	 * This function gives the index of a method of the pool, adding it if needed.
+	 * @param owner the internal name of the class of the method
+	 * @param name the name of the method
+	 * @param descriptor the descriptor of the method
+	 * @return the index of the method in the pool
+	 * @throws IOException never, the class is written in memory
+	 */
+	private int methodEntry(String owner, String name, String descriptor) throws IOException {
+		String key = "M" + owner + "." + name + descriptor;
+		Integer index = this.entries.get(key);
+		if (index != null) return index;
+		int classIndex = this.classEntry(owner);
+		int nameIndex = this.utf8Entry(name);
+		int descriptorIndex = this.utf8Entry(descriptor);
+		this.poolData.writeByte(12); //name and type
+		this.poolData.writeShort(nameIndex);
+		this.poolData.writeShort(descriptorIndex);
+		int nameAndType = this.newEntry("N" + key);
+		this.poolData.writeByte(10); //method
+		this.poolData.writeShort(classIndex);
+		this.poolData.writeShort(nameAndType);
+		return this.newEntry(key);
+	}
+
+	/**
+	 * This function registers the entry that has just been written in the pool.
+	 * @param key the key of the entry
+	 * @return the index of the entry
+	 * @throws IOException if the pool is full
+	 */
+	private int newEntry(String key) throws IOException {
+		if (this.poolSize == 0xFFFF) throw new IOException("constant pool full");
+		int index = this.poolSize++;
+		this.entries.put(key, index);
+		return index;
+	}
+
+	/**
+	 * This method writes two bytes.
+	 * @param code the stream receiving the bytes
+	 * @param value the value on two bytes
+	 */
+	private static void writeShort(ByteArrayOutputStream code, int value) {
+		code.write(value >>> 8);
+		code.write(value);
+	}
+
+}
@@ -0,0 +1,140 @@
+package brain;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is a singleton giving the historical markings of the FlexibleBrains, as in
+ * the NEAT algorithm. <br>
+ * Each node has an id and each link has an innovation number. Two links joining the same
+ * nodes created during the same generation get the same innovation number, so the genes
+ * of two brains can be lined up without looking at the position of the nodes. <br>
+ * The inputs, the outputs and the hidden nodes created with a brain always get the same
+ * id for the same position. A hidden node added by a mutation gets a new id, shared by
+ * the nodes added at the same position during the same generation, unless the brain 
+ * already has a node with this id : a brain never has two nodes with the same id.
+ *
+ * @author jrl
+ *
+ */
+public class InnovationRegistry {
+
+	/**
+	 * unique instance of this class
+	 */
+	private static final InnovationRegistry INSTANCE = new InnovationRegistry();
+
+	/**
+	 * number of the array of the inputs, as in the coordinates of the nodes
+	 */
+	static final byte INPUT = 1;
+
+	/**
+	 * number of the array of the hidden nodes, as in the coordinates of the nodes
+	 */
+	static final byte HIDDEN = 2;
+
+	/**
+	 * number of the array of the outputs, as in the coordinates of the nodes
+	 */
+	static final byte OUTPUT = 3;
+
+	/**
+	 * the ids of the nodes created with the brains, by array and position
+	 */
+	private final Map<Long, Integer> initialNodes = new HashMap<>();
+
+	/**
+	 * the ids of the hidden nodes added during this generation, by position. There are
+	 * several ids for a position when a brain adds several nodes at this position.
+	 */
+	private final Map<Integer, List<Integer>> addedNodes = new HashMap<>();
+
+	/**
+	 * the innovation numbers of the links created during this generation, by ids of the
+	 * origin and the target
+	 */
+	private final Map<Long, Integer> links = new HashMap<>();
+
+	/**
+	 * the next id for a node
+	 */
+	private int nextNodeId = 0;
+
+	/**
+	 * the next innovation number for a link
+	 */
+	private int nextInnovation = 0;
+
+	/**
+	 * Private constructor to prevent external instantiation.
+	 */
+	private InnovationRegistry() {}
+
+	/**
+	 * Returns the singleton instance of InnovationRegistry.
+	 * @return The singleton instance of InnovationRegistry.
+	 */
+	public static InnovationRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * This method starts a new generation : the structural mutations made after this call
+	 * get new ids and innovation numbers.
+	 */
+	public synchronized void nextGeneration() {
+		this.addedNodes.clear();
+		this.links.clear();
+	}
+
+	/**
+	 * gives the id of a node created with a brain.
+	 * @param nodeArray the number of the array containing the node (1 inputs, 2 hidden,
+	 * 3 outputs)
+	 * @param position the position of the node in the array
+	 * @return the id of the node
+	 */
+	synchronized int initialNodeId(byte nodeArray, int position) {
+		return this.initialNodes.computeIfAbsent(((long) nodeArray << 32) | position,
+				key -> this.nextNodeId++);
+	}
+
+	/**
+	 * gives the id of a hidden node added by a mutation. It is the first id given at 
+	 * this position during this generation that the brain doesn't use yet.
+	 * @param position the position of the new node in the hidden nodes
+	 * @param hidden the hidden nodes of the brain before the addition
+	 * @return the id of the node
+	 */
+	synchronized int addedNodeId(int position, FlexibleBrain.Node[] hidden) {
+		List<Integer> ids = this.addedNodes.computeIfAbsent(position, key -> new ArrayList<>());
+		for (int id : ids) {
+			boolean used = false;
+			for (FlexibleBrain.Node node : hidden) {
+				if (node.id == id) {
+					used = true;
+					break;
+				}
+			}
+			if (!used) return id;
+		}
+		int id = this.nextNodeId++;
+		ids.add(id);
+		return id;
+	}
+
+	/**
+	 * gives the innovation number of a link.
+	 * @param originId the id of the origin node
+	 * @param targetId the id of the target node
+	 * @return the innovation number of the link
+	 */
+	synchronized int linkInnovation(int originId, int targetId) {
+		return this.links.computeIfAbsent(((long) originId << 32) | (targetId & 0xFFFFFFFFL),
+				key -> this.nextInnovation++);
+	}
+
+}
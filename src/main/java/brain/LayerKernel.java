@@ -0,0 +1,53 @@
+package brain;
+
+/**
+ * This interface represents the elementary operation of the computing process of the
+ * LayeredBrain : adding the signal of one origin node to a row of target nodes. <br>
+ * Two implementations exist : a scalar one, always available, and one using the
+ * vector API of the JDK. The vector one is only compiled when the gradle property
+ * vectorApi is set to true, and only used when the module jdk.incubator.vector is
+ * present at runtime. <br>
+ * The vector implementation uses fused multiply-add operations, so its results can
+ * differ slightly from the scalar ones : for each target value, the difference stays
+ * below 1e-6 times the sum of the absolute values of the added products.
+ * @author jrl
+ *
+ */
+interface LayerKernel {
+	
+	/**
+	 * the name of the class of the vector implementation.
+	 */
+	static final String VECTOR_KERNEL = "brain.VectorLayerKernel";
+	
+	/**
+	 * This function chooses the implementation to use. The vector implementation is 
+	 * taken when it can be loaded, unless the system property brain.scalarKernel is 
+	 * set to true.
+	 * @return the implementation to use
+	 */
+	static LayerKernel select() {
+		if (Boolean.getBoolean("brain.scalarKernel")) return new ScalarLayerKernel();
+		try {
+			return (LayerKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			//the vector API is not there
+			return new ScalarLayerKernel();
+		}
+	}
+	
+	/**
+	 * This method adds the products of a value and a part of an array to a part of an 
+	 * other array : target[targetOffset + i] += value * weights[weightsOffset + i] for
+	 * each i between 0 and length.
+	 * @param value the value of the origin node
+	 * @param weights the array containing the factors of the links
+	 * @param weightsOffset the index of the first link to use
+	 * @param target the array containing the values of the target nodes
+	 * @param targetOffset the index of the first target node
+	 * @param length the number of target nodes
+	 */
+	void transmit(float value, float[] weights, int weightsOffset, 
+			float[] target, int targetOffset, int length);
+
+}
@@ -2,8 +2,6 @@ package brain;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import brain.mutation.MutationAdditionNode;
 import brain.mutation.MutationDeletionNode;
@@ -27,21 +25,22 @@ public class LayeredBrain extends Brain {
 	
 	/**
 	 * Integrated class used to transmit a signal from a layer to an other using multiple
-	 * threads.
+	 * threads. Each object manages a part of the target nodes, taking the signal from all
+	 * the nodes of the source layer.
 	 * @author jrl
 	 *
 	 */
 	private class TransmitSignal implements Runnable {
 		
 		/**
-		 * the value stored in the origin node
+		 * the index of the source layer
 		 */
-		private float originNumber;
+		private int sourceLayer;
 		
 		/**
-		 * the array of links to transmit
+		 * the values of the nodes of the source layer
 		 */
-		private float[] linksArray;
+		private float[] sourceArray;
 		
 		/**
 		 * the array of nodes to store the new values
@@ -49,7 +48,7 @@ public class LayeredBrain extends Brain {
 		private float[] targetArray;
 		
 		/**
-		 * the index of the beginning of the area of action of this object
+		 * the index of the first target node of the area of action of this object
 		 */
 		private int startIndex;
 		
@@ -60,16 +59,17 @@ public class LayeredBrain extends Brain {
 
 		/**
 		 * the constructor to manage a part of the signal transmission
-		 * @param originNumber the value stored in the origin node
-		 * @param linksArray the array of links to transmit
-		 * @param targetArray the array of links to transmit
-		 * @param startIndex the index of the beginning of the area of action of this object
+		 * @param sourceLayer the index of the source layer
+		 * @param sourceArray the values of the nodes of the source layer
+		 * @param targetArray the array of nodes to store the new values
+		 * @param startIndex the index of the first target node of the area of action of 
+		 * this object
 		 * @param endIndex the end index of the area of action of this object
 		 */
-		public TransmitSignal(float originNumber, float[] linksArray, 
-				float[] targetArray, int startIndex, int endIndex) {
-			this.originNumber = originNumber;
-			this.linksArray = linksArray;
+		public TransmitSignal(int sourceLayer, float[] sourceArray, float[] targetArray,
+				int startIndex, int endIndex) {
+			this.sourceLayer = sourceLayer;
+			this.sourceArray = sourceArray;
 			this.targetArray = targetArray;
 			this.startIndex = startIndex;
 			this.endIndex = endIndex;
@@ -77,27 +77,89 @@ public class LayeredBrain extends Brain {
 
 		@Override
 		public void run() {
-			if (endIndex > this.targetArray.length) endIndex = this.targetArray.length;
-			for (int i = startIndex; i < endIndex; i++) {
-				this.targetArray[i] += originNumber * this.linksArray[i];
+			float[] linksArray = links[sourceLayer];
+			int stride = layerSizes[sourceLayer + 1];
+			if (endIndex > stride) endIndex = stride;
+			for (int j = 0; j < layerSizes[sourceLayer]; j++) {//for each source node
+				kernel.transmit(sourceArray[j], linksArray, j * stride + startIndex, 
+						targetArray, startIndex, endIndex - startIndex);
 			}
 		}
 		
 	}
 	
+	/**
+	 * Integrated class used to compute a part of a set of samples using multiple threads.
+	 * @author jrl
+	 *
+	 */
+	private class TransmitBatch implements Runnable {
+		
+		/**
+		 * the inputs of all the samples
+		 */
+		private float[] inputs;
+		
+		/**
+		 * the array that will contain the outputs of all the samples
+		 */
+		private float[] results;
+		
+		/**
+		 * the index of the first sample of the area of action of this object
+		 */
+		private int startSample;
+		
+		/**
+		 * the end index of the area of action of this object
+		 */
+		private int endSample;
+		
+		/**
+		 * the constructor to manage a part of the samples
+		 * @param inputs the inputs of all the samples
+		 * @param results the array that will contain the outputs of all the samples
+		 * @param startSample the index of the first sample of the area of action of 
+		 * this object
+		 * @param endSample the end index of the area of action of this object
+		 */
+		public TransmitBatch(float[] inputs, float[] results, int startSample, int endSample) {
+			this.inputs = inputs;
+			this.results = results;
+			this.startSample = startSample;
+			this.endSample = endSample;
+		}
+		
+		@Override
+		public void run() {
+			transmitBatch(inputs, results, startSample, endSample);
+		}
+		
+	}
+	
 	/***********************************************************************************/
 	/*                                variables                                        */
 	/***********************************************************************************/
 	
 	/**
-	 * array containing the values for each node
+	 * the number of nodes in each layer. <br>
+	 * The number of nodes of a layer is also the stride of the links coming from the 
+	 * previous layer.
+	 */
+	private int[] layerSizes;
+	
+	/**
+	 * array containing the value of the links between the nodes. <br>
+	 * There is one array for each layer except the output layer. The links are stored 
+	 * origin node by origin node : the link between the origin node j of the layer i and
+	 * the target node k of the layer i+1 is links[i][j * layerSizes[i+1] + k].
 	 */
-	private transient float[][] nodes;
+	private float[][] links;
 	
 	/**
-	 * array containing the value of the links between the nodes
+	 * the implementation of the elementary operation of the computing process.
 	 */
-	private float[][][] links;
+	private static final LayerKernel kernel = LayerKernel.select();
 	
 	/**
 	 * At the initialisation of the brain, the links will take this value.
@@ -138,33 +200,42 @@ public class LayeredBrain extends Brain {
 	/***********************************************************************************/
 	
 	/**
-	 * function that creates a new array of links from a node to the next layer.
-	 * @param originLayer the layer of the origin node
+	 * function that gives the value of a new link.
+	 * @return the default value of the links, modified by the default variation
+	 */
+	private float createLink() {
+		return defaultLinkValue + ((defaultLinkVariation != 0) ? 
+				random.nextFloat(-defaultLinkVariation, defaultLinkVariation) : 0);
+	}
+	
+	/**
+	 * function that creates a new array of links between two layers.
+	 * @param originLayer the layer of the origin nodes
 	 * @return the array of links
 	 */
 	private float[] createLinks(int originLayer) {
-		int size = this.nodes[originLayer + 1].length;
-		float[] array = new float[size];
-		for (int i = 0; i < size; i++) {
-			array[i] = defaultLinkValue + ((defaultLinkVariation != 0) ? 
-					random.nextFloat(-defaultLinkVariation, defaultLinkVariation) : 0);
-		}
+		float[] array = new float[this.layerSizes[originLayer] * this.layerSizes[originLayer + 1]];
+		for (int i = 0; i < array.length; i++) array[i] = createLink();
 		return array;
 	}
 	
 	/**
-	 * fuction that allows to delete an element from an array knowing the index
-	 * @param array the array to modify
-	 * @param position the position of the element
-	 * @return the array without the delete element
+	 * function that gives the array containing the values of a layer. <br>
+	 * The values of the inputs and of the outputs are read and written directly in the
+	 * arrays given to the compute method. The hidden layers use two arrays of the 
+	 * scratch in turn, so the brain itself holds no value and can be computed by many
+	 * threads at the same time.
+	 * @param layer the index of the layer
+	 * @param inputs the inputs given to the compute method
+	 * @param outputs the outputs given to the compute method
+	 * @param scratch the scratch of the current computing
+	 * @return the array containing the values of the layer
 	 */
-	private float[] deleteFromArray(float[] array, int position) {
-		float[] newArray = new float[array.length - 1];
-		int j = 0;
-		for (int i = 0; i < array.length; i++) {
-		    if (i != position) newArray[j++] = array[i];
-		}
-		return newArray;
+	private float[] layerValues(int layer, float[] inputs, float[] outputs, 
+			ComputingScratch scratch) {
+		if (layer == 0) return inputs;
+		if (layer == this.layerSizes.length - 1) return outputs;
+		return scratch.buffer(layer % 2, this.layerSizes[layer]);
 	}
 	
 	/***********************************************************************************/
@@ -182,25 +253,16 @@ public class LayeredBrain extends Brain {
 	 */
 	public LayeredBrain(int numberInputs, int numberOutputs, 
 			int numberHiddenLayers, int numberByLayer) {
-		this.nodes = new float[2 + numberHiddenLayers][];
-		this.links = new float[1 + numberHiddenLayers][][];//nothing coming from the outputs
-		//input array
-		this.nodes[0] = new float[numberInputs];
-		this.links[0] = new float[numberInputs][];
+		this.layerSizes = new int[2 + numberHiddenLayers];
+		//input layer
+		this.layerSizes[0] = numberInputs;
 		//hidden layers
-		for (int i = 1; i < numberHiddenLayers + 1; i++) {
-			this.nodes[i] = new float[numberByLayer];
-			this.links[i] = new float[numberByLayer][];
-		}
+		for (int i = 1; i < numberHiddenLayers + 1; i++) this.layerSizes[i] = numberByLayer;
 		//output layer
-		this.nodes[1 + numberHiddenLayers] = new float[numberOutputs];		
-		//connecting the layers
-		for (int i = 0; i < this.links.length; i++) {
-			for (int j = 0; j < this.links[i].length; j++) {
-				this.links[i][j] = createLinks(i);
-			}
-		}
-		
+		this.layerSizes[1 + numberHiddenLayers] = numberOutputs;
+		//connecting the layers (nothing coming from the outputs)
+		this.links = new float[1 + numberHiddenLayers][];
+		for (int i = 0; i < this.links.length; i++) this.links[i] = createLinks(i);
 	}
 	
 	/**
@@ -210,25 +272,14 @@ public class LayeredBrain extends Brain {
 	protected LayeredBrain(ByteBuffer bb) {
 		//nb of layers
 		short nbLayers = bb.getShort();
-		this.nodes = new float[nbLayers][];
-		this.links = new float[nbLayers-1][][];
 		//nb of nodes in each layer
-		short nbNodes;
-		for (int i = 0; i < nbLayers-1; i++) {
-			nbNodes = bb.getShort();
-			this.nodes[i] = new float[nbNodes];
-			this.links[i] = new float[nbNodes][];
-		}
-		nbNodes = bb.getShort();
-		this.nodes[nbLayers-1] = new float[nbNodes];
+		this.layerSizes = new int[nbLayers];
+		for (int i = 0; i < nbLayers; i++) this.layerSizes[i] = bb.getShort();
 		//inserting the links
+		this.links = new float[nbLayers-1][];
 		for (int i = 0; i < nbLayers-1; i++) {//layer
-			for (int j = 0; j < this.nodes[i].length; j++) {//origin node
-				this.links[i][j] = new float[this.nodes[i+1].length];
-				for (int k = 0; k < this.nodes[i+1].length; k++) {
-					this.links[i][j][k] = bb.getFloat();
-				}
-			}
+			this.links[i] = new float[this.layerSizes[i] * this.layerSizes[i+1]];
+			for (int j = 0; j < this.links[i].length; j++) this.links[i][j] = bb.getFloat();
 		}
 		if (traceMutation) this.restoreMutation(bb);
 		
@@ -239,24 +290,13 @@ public class LayeredBrain extends Brain {
 	 * @param original the brain we want to copy
 	 */
 	protected LayeredBrain(LayeredBrain original) {
-		this.nodes = new float[original.nodes.length][];
-		this.links = new float[original.links.length][][];
-		//nodes arrays
-		for (int i = 0; i < this.nodes.length; i++) {
-			this.nodes[i] = new float[original.nodes[i].length];
-		}
+		this.layerSizes = Arrays.copyOf(original.layerSizes, original.layerSizes.length);
 		//links arrays
+		this.links = new float[original.links.length][];
 		for (int i = 0; i < this.links.length; i++) {
-			this.links[i] = new float[original.links[i].length][];
-			for (int j = 0; j < this.links[i].length; j++) {
-				this.links[i][j] = new float[original.links[i][j].length];
-				//copy of the values
-				for (int k = 0; k < this.links[i][j].length; k++) {
-			        System.arraycopy(original.links[i][j], 0, 
-			        		this.links[i][j], 0, original.links[i][j].length);
-				}
-			}
+			this.links[i] = Arrays.copyOf(original.links[i], original.links[i].length);
 		}
+		this.copyGenesHash(original);
 	}
 	
 	/**
@@ -267,28 +307,68 @@ public class LayeredBrain extends Brain {
 	 */
 	protected LayeredBrain(LayeredBrain parent1, LayeredBrain parent2) {
 		//the number of layer does not changes
-		this.nodes = new float[parent1.nodes.length][];
-		this.links = new float[parent1.links.length][][];
-		//the node arrays
-		for (int i = 0; i < parent1.nodes.length; i++) {
-			this.nodes[i] = new float[parent1.nodes[i].length];
-		}
+		this.layerSizes = Arrays.copyOf(parent1.layerSizes, parent1.layerSizes.length);
 		//adapt the values of the links
+		this.links = new float[parent1.links.length][];
 		for (int i = 0; i < parent1.links.length; i++) {
-			this.links[i] = new float[parent1.links[i].length][];
-			for (int j = 0; j < parent1.links[i].length; j++) {
-				this.links[i][j] = new float[parent1.links[i][j].length];
-				for (int k = 0; k < parent1.links[i][j].length; k++) {
-					//if parent2.links[i][j] exists and is big enough
-					if (parent2.links[i].length > j && parent2.links[i][j].length > k) {
-						this.links[i][j][k] = (parent1.links[i][j][k] + parent2.links[i][j][k])/2;
-					}
-					else this.links[i][j][k] = parent1.links[i][j][k];
+			int stride1 = parent1.layerSizes[i+1];
+			int stride2 = parent2.layerSizes[i+1];
+			this.links[i] = Arrays.copyOf(parent1.links[i], parent1.links[i].length);
+			//the part of the links that exists in parent2
+			int nbOrigins = Math.min(parent1.layerSizes[i], parent2.layerSizes[i]);
+			int nbTargets = Math.min(stride1, stride2);
+			for (int j = 0; j < nbOrigins; j++) {
+				for (int k = 0; k < nbTargets; k++) {
+					this.links[i][j * stride1 + k] = 
+							(parent1.links[i][j * stride1 + k] + parent2.links[i][j * stride2 + k])/2;
 				}
 			}
 		}
 	}
 	
+	/***********************************************************************************/
+	/*                                    getters                                      */
+	/***********************************************************************************/
+	
+	@Override
+	public int getNbInputs() {
+		return this.layerSizes[0];
+	}
+	
+	@Override
+	public int getNbOutputs() {
+		return this.layerSizes[this.layerSizes.length - 1];
+	}
+	
+	@Override
+	long computeGenesHash() {
+		long hash = 0;
+		for (int layer = 0; layer < this.links.length; layer++) {
+			int stride = this.layerSizes[layer + 1];
+			for (int index = 0; index < this.links[layer].length; index++) {
+				hash += linkHash(layer, index / stride, index % stride, this.links[layer][index]);
+			}
+		}
+		return hash;
+	}
+	
+	@Override
+	long structureHash() {
+		return geneHash(Arrays.hashCode(this.layerSizes), this.layerSizes.length);
+	}
+	
+	/**
+	 * function that gives the hash of a link, from its position and its factor.
+	 * @param layer the layer of the origin node of the link
+	 * @param origin the position of the origin node of the link
+	 * @param target the position of the target node of the link
+	 * @param factor the factor of the link
+	 * @return the hash of the link
+	 */
+	private static long linkHash(int layer, int origin, int target, float factor) {
+		return geneHash(((long) layer << 48) | ((long) origin << 24) | target, factor);
+	}
+	
 	/***********************************************************************************/
 	/*                       controlled mutation functions                             */
 	/***********************************************************************************/
@@ -301,16 +381,19 @@ public class LayeredBrain extends Brain {
 	 * @param target the position of the target node of the link
 	 */
 	void changeLinkFactor(float newFactor, int layer, int origin, int target) {
+		int index = origin * this.layerSizes[layer + 1] + target;
 		//registration
 		if (traceMutation) this.mutations.add(new MutationLinkFactor(
 				(short) layer, 
 				(short) origin, 
 				(short) (layer + 1), 
 				(short) target, 
-				this.links[layer][origin][target], 
-				newFactor - this.links[layer][origin][target]));
+				this.links[layer][index], 
+				newFactor - this.links[layer][index]));
 		//mutation
-		this.links[layer][origin][target] = newFactor;
+		this.updateGenesHash(linkHash(layer, origin, target, this.links[layer][index]),
+				linkHash(layer, origin, target, newFactor));
+		this.links[layer][index] = newFactor;
 	}
 	
 	/**
@@ -318,20 +401,27 @@ public class LayeredBrain extends Brain {
 	 * @param layer the hidden layer where we add the node
 	 */
 	void addNode(int layer) {
-		if (layer <= 0 || layer >= this.nodes.length - 1) return;
+		if (layer <= 0 || layer >= this.layerSizes.length - 1) return;
+		int oldSize = this.layerSizes[layer];
+		int nbOrigins = this.layerSizes[layer - 1];
+		int nbTargets = this.layerSizes[layer + 1];
 		//add the new node
-		this.nodes[layer] = Arrays.copyOf(this.nodes[layer], this.nodes[layer].length + 1);
-		//add the new links from the new node
-		this.links[layer] = Arrays.copyOf(this.links[layer], this.links[layer].length + 1);
-		this.links[layer][this.links[layer].length -1] = createLinks(layer);
-		//add one link for each node of the previous layer
-		for (int i = 0; i < this.links[layer-1].length; i++) {
-			this.links[layer-1][i] = Arrays.copyOf(
-					this.links[layer-1][i], this.links[layer-1][i].length + 1);
-			this.links[layer-1][i][this.links[layer-1][i].length-1] = 
-					defaultLinkValue + ((defaultLinkVariation != 0) ? 
-							random.nextFloat(-defaultLinkVariation, defaultLinkVariation) : 0);
+		this.layerSizes[layer]++;
+		//add the new links from the new node (a new row at the end)
+		this.links[layer] = Arrays.copyOf(this.links[layer], (oldSize + 1) * nbTargets);
+		for (int k = oldSize * nbTargets; k < this.links[layer].length; k++) {
+			this.links[layer][k] = createLink();
 		}
+		//add one link for each node of the previous layer (a new column at the end)
+		float[] oldArray = this.links[layer-1];
+		float[] newArray = new float[nbOrigins * (oldSize + 1)];
+		for (int i = 0; i < nbOrigins; i++) {
+			System.arraycopy(oldArray, i * oldSize, newArray, i * (oldSize + 1), oldSize);
+			newArray[i * (oldSize + 1) + oldSize] = createLink();
+		}
+		this.links[layer-1] = newArray;
+		//the positions of the links changed
+		this.forgetGenesHash();
 		//registration
 		if (traceMutation) this.mutations.add(new MutationAdditionNode(layer));
 	}
@@ -342,19 +432,28 @@ public class LayeredBrain extends Brain {
 	 * @param position the position of the node in the layer
 	 */
 	void deleteNode(int layer, int position) {
+		int oldSize = this.layerSizes[layer];
+		int nbOrigins = this.layerSizes[layer - 1];
+		int nbTargets = this.layerSizes[layer + 1];
 		//delete in the node array
-		this.nodes[layer] = new float[this.nodes[layer].length -1 ];
-		//delete in the links coming from the deleted node
-		float[][] newArray = new float[this.links[layer].length - 1][];
-		int j = 0;
-		for (int i = 0; i < this.links[layer].length; i++) {
-		    if (i != position) newArray[j++] = this.links[layer][i];
-		}
+		this.layerSizes[layer]--;
+		//delete the links coming from the deleted node (the row of the node)
+		float[] newArray = new float[(oldSize - 1) * nbTargets];
+		System.arraycopy(this.links[layer], 0, newArray, 0, position * nbTargets);
+		System.arraycopy(this.links[layer], (position + 1) * nbTargets, 
+				newArray, position * nbTargets, (oldSize - position - 1) * nbTargets);
 		this.links[layer] = newArray;
-		//delete the links going to the deleted node
-		for (int i = 0; i < this.links[layer-1].length; i++) {
-			this.links[layer-1][i] = deleteFromArray(this.links[layer-1][i], position);
+		//delete the links going to the deleted node (the column of the node)
+		float[] oldArray = this.links[layer-1];
+		newArray = new float[nbOrigins * (oldSize - 1)];
+		for (int i = 0; i < nbOrigins; i++) {
+			System.arraycopy(oldArray, i * oldSize, newArray, i * (oldSize - 1), position);
+			System.arraycopy(oldArray, i * oldSize + position + 1, 
+					newArray, i * (oldSize - 1) + position, oldSize - position - 1);
 		}
+		this.links[layer-1] = newArray;
+		//the positions of the links changed
+		this.forgetGenesHash();
 		//registration
 		if (traceMutation) this.mutations.add(new MutationDeletionNode(layer, position));
 	}
@@ -369,14 +468,14 @@ public class LayeredBrain extends Brain {
 	public void changeRandomLinkFactor(float minMaxChange) {
 		if (minMaxChange == 0) return;
 		short layer = (short) random.nextInt(this.links.length);
-		if (this.links[layer].length == 0) return;
-		short origin = (short) random.nextInt(this.links[layer].length);
-		if (this.links[layer][origin].length == 0) return;
-		short target = (short) random.nextInt(this.links[layer][origin].length);
+		if (this.layerSizes[layer] == 0) return;
+		short origin = (short) random.nextInt(this.layerSizes[layer]);
+		if (this.layerSizes[layer + 1] == 0) return;
+		short target = (short) random.nextInt(this.layerSizes[layer + 1]);
 		float changement = random.nextFloat(-minMaxChange, minMaxChange);
 		//mutation
-		this.changeLinkFactor(this.links[layer][origin][target] + changement, 
-				layer, origin, target);
+		this.changeLinkFactor(this.links[layer][origin * this.layerSizes[layer + 1] + target] 
+				+ changement, layer, origin, target);
 		
 	}
 
@@ -403,8 +502,8 @@ public class LayeredBrain extends Brain {
 	@Override
 	public void deleteRandomNode() {
 		int layer = random.nextInt(1, this.links.length);
-		if (this.nodes[layer].length == 0) return;
-		int position = random.nextInt(this.nodes[layer].length);
+		if (this.layerSizes[layer] == 0) return;
+		int position = random.nextInt(this.layerSizes[layer]);
 		this.deleteNode(layer, position);
 	}
 
@@ -418,103 +517,165 @@ public class LayeredBrain extends Brain {
 	/***********************************************************************************/
 	
 	@Override
-	public float[] compute(float[] inputs) {
-		//getting the inputs
-		this.nodes[0] = Arrays.copyOf(inputs, inputs.length);
-		
-		//deciding if we use multiple threads
-		int nbThreads = (Brain.maxUsableCores < Runtime.getRuntime().availableProcessors()) ?
-				Brain.maxUsableCores : Runtime.getRuntime().availableProcessors();
-		
+	public void compute(float[] inputs, float[] outputs) {
 		//transmitting in the layers
-		if (nbThreads == 1) this.transmitLayers();
-		else this.transmitLayers(nbThreads);
-		
-		//copiing the results
-		float[] results = Arrays.copyOf(this.nodes[this.nodes.length - 1], 
-				this.nodes[this.nodes.length - 1].length);
-		//resetting the nodes
-		for (float[] row : this.nodes) Arrays.fill(row, 0);
-		return results;
+		ComputingScratch scratch = ComputingScratch.acquire();
+		try {
+			for (int i = 0; i < this.links.length; i++) { //for each layer
+				float[] source = this.layerValues(i, inputs, outputs, scratch);
+				float[] target = this.layerValues(i + 1, inputs, outputs, scratch);
+				Arrays.fill(target, 0, this.layerSizes[i + 1], 0);
+				//deciding if this layer is big enough for multiple threads
+				int nbThreads = ComputingPool.getInstance().chooseNbThreads(
+						(long) this.layerSizes[i] * this.layerSizes[i + 1]);
+				if (nbThreads == 1) this.transmitNextLayer(i, source, target);
+				else if (this.layerSizes[i] != 0) {
+					this.transmitNextLayer(nbThreads, i, source, target);
+				}
+			}
+		} finally {
+			scratch.release();
+		}
 	}
 	
 	/**
-	 * Private function to tranmit the signal in the layers using a sigle thread.
+	 * Private function to tranmit the signal from one layer to the other using a sigle
+	 * thread.
+	 * @param sourceLayer the index of the source layer
+	 * @param source the values of the nodes of the source layer
+	 * @param target the array that will contain the values of the next layer. It must
+	 * be filled with zeros.
 	 */
-	private void transmitLayers() {
-		for (int i = 0; i < this.links.length; i++) { //for each layer
-			//transmitting the signals to the other layers
-			for (int j = 0; j < this.links[i].length; j++) {//for each source node
-				for (int k = 0; k < this.links[i][j].length; k++) {//for each target node
-					//take the value from the source and transmitting it to the target
-					this.nodes[i+1][k] += this.nodes[i][j] * this.links[i][j][k];
-				}
-			}
+	private void transmitNextLayer(int sourceLayer, float[] source, float[] target) {
+		float[] weights = this.links[sourceLayer];
+		int stride = this.layerSizes[sourceLayer + 1];
+		//transmitting the signals to the other layer
+		for (int j = 0; j < this.layerSizes[sourceLayer]; j++) {//for each source node
+			//take the value from the source and transmitting it to the targets
+			kernel.transmit(source[j], weights, j * stride, target, 0, stride);
+		}
+	}
+	
+	@Override
+	public float[] computeBatch(float[] inputs, int nbSamples) {
+		float[] results = new float[nbSamples * this.getNbOutputs()];
+		//deciding if we use multiple threads
+		long nbLinks = 0;
+		for (int i = 0; i < this.links.length; i++) {
+			nbLinks += (long) this.layerSizes[i] * this.layerSizes[i + 1];
+		}
+		int nbThreads = ComputingPool.getInstance().chooseNbThreads(nbLinks * nbSamples);
+		int nbIterations = (nbSamples < nbThreads) ? nbSamples : nbThreads;
+		if (nbIterations <= 1) {
+			this.transmitBatch(inputs, results, 0, nbSamples);
+			return results;
 		}
+		//each thread takes a part of the samples
+		int chunkSize = (nbSamples + nbIterations - 1) / nbIterations;
+		nbIterations = (nbSamples + chunkSize - 1) / chunkSize;
+		Runnable[] tasks = new Runnable[nbIterations];
+		for (int i = 0; i < nbIterations; i++) {
+			int startSample = i * chunkSize;
+			tasks[i] = new TransmitBatch(inputs, results, startSample, 
+					Math.min(startSample + chunkSize, nbSamples));
+		}
+		ComputingPool.getInstance().runAll(tasks);
+		return results;
 	}
 	
 	/**
-	 * Private function to transmit the signal in the layers using nbThreads number of
-	 * cores.
-	 * @param nbThreads The number of threads that will be used
+	 * Private function to transmit the signal of a set of samples in the layers. <br>
+	 * The layers are computed one after the other for all the samples, so the links of 
+	 * an origin node are used for every sample before going to the next origin node.
+	 * @param inputs the inputs of all the samples
+	 * @param results the array that will contain the outputs of all the samples
+	 * @param startSample the index of the first sample to compute
+	 * @param endSample the end index of the samples to compute
 	 */
-	private void transmitLayers(int nbThreads) {
+	private void transmitBatch(float[] inputs, float[] results, int startSample, int endSample) {
+		int nbSamples = endSample - startSample;
+		int maxSize = 0;
+		for (int size : this.layerSizes) maxSize = Math.max(maxSize, size);
+		float[] buffer1 = new float[nbSamples * maxSize];
+		float[] buffer2 = new float[nbSamples * maxSize];
+		//the first source is the inputs
+		float[] source = inputs;
+		int sourceStart = startSample * this.layerSizes[0];
 		for (int i = 0; i < this.links.length; i++) { //for each layer
-			if (this.links[i].length != 0) transmitNextLayer(nbThreads, i);
+			int sourceSize = this.layerSizes[i];
+			int stride = this.layerSizes[i+1];
+			float[] weights = this.links[i];
+			//the last layer is written directly in the results
+			float[] target;
+			int targetStart;
+			if (i == this.links.length - 1) {
+				target = results;
+				targetStart = startSample * stride;
+			}
+			else {
+				target = (source == buffer1) ? buffer2 : buffer1;
+				targetStart = 0;
+				Arrays.fill(target, 0, nbSamples * stride, 0);
+			}
+			for (int j = 0; j < sourceSize; j++) {//for each source node
+				int offset = j * stride;
+				for (int s = 0; s < nbSamples; s++) {//for each sample
+					kernel.transmit(source[sourceStart + s * sourceSize + j], weights, offset, 
+							target, targetStart + s * stride, stride);
+				}
+			}
+			source = target;
+			sourceStart = 0;
 		}
 	}
 	
 	/**
-	 * Private function to transmit the signal from one layer to the other.
+	 * Private function to transmit the signal from one layer to the other. <br>
+	 * The target nodes are split between the threads, and the function returns once
+	 * every part is done.
+	 * @param nbThreads the number of threads that will be used
 	 * @param sourceLayer the index of the source layer
+	 * @param source the values of the nodes of the source layer
+	 * @param target the array that will contain the values of the next layer. It must
+	 * be filled with zeros.
 	 */
-	private void transmitNextLayer(int nbThreads, int sourceLayer) {
+	private void transmitNextLayer(int nbThreads, int sourceLayer, float[] source, 
+			float[] target) {
 		//getting keys values
-		int chunkSize = (this.links[sourceLayer][0].length / nbThreads) + 1;
-		int nbIterations = (this.links[sourceLayer][0].length < nbThreads)
-				? this.links[sourceLayer][0].length : nbThreads;
-		for (int j = 0; j < this.links[sourceLayer].length; j++) {//for each source node
-			//transmitting the signal through multiple threads
-	        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
-			for (int k = 0; k < nbIterations; k++) {
-				int startIndex = k * chunkSize;
-				int endIndex = startIndex + chunkSize;
-            	executor.execute(new TransmitSignal(
-            			this.nodes[sourceLayer][j], 
-            			this.links[sourceLayer][j], 
-            			this.nodes[sourceLayer + 1], 
-            			startIndex, endIndex));
-			}
-	        executor.shutdown();
-	        while (!executor.isTerminated()) {/*wait for the operation to finish*/}
+		int nbTargets = this.layerSizes[sourceLayer + 1];
+		int nbIterations = (nbTargets < nbThreads) ? nbTargets : nbThreads;
+		if (nbIterations == 0) return;
+		int chunkSize = (nbTargets + nbIterations - 1) / nbIterations;
+		nbIterations = (nbTargets + chunkSize - 1) / chunkSize;
+		//transmitting the signal through multiple threads
+		Runnable[] tasks = new Runnable[nbIterations];
+		for (int k = 0; k < nbIterations; k++) {
+			int startIndex = k * chunkSize;
+			tasks[k] = new TransmitSignal(sourceLayer, source, target, 
+					startIndex, startIndex + chunkSize);
 		}
+		ComputingPool.getInstance().runAll(tasks);
 	}
 
 	@Override
 	public byte[] toBytes() {
 		//calcul of the size
 		int nbLinks = 0;
-		for (int i = 0; i < this.links.length; i++) {
-			nbLinks += this.nodes[i].length * this.nodes[i+1].length;
-		}
-		int size = 3 + this.nodes.length*2 + nbLinks*4
+		for (int i = 0; i < this.links.length; i++) nbLinks += this.links[i].length;
+		int size = 3 + this.layerSizes.length*2 + nbLinks*4
 				+ ((traceMutation) ? 17 * this.mutations.size() + 2 : 0);
 		ByteBuffer bb = ByteBuffer.allocate(size);
 		//type of the brain (2 for LayeredBrain)(1 byte)
 		bb.put((byte) 2);
 		//number of layers (short)
-		bb.putShort((short) this.nodes.length);
+		bb.putShort((short) this.layerSizes.length);
 		//length of each layer (a short each)
-		for (int i = 0; i < this.nodes.length; i++) {
-			bb.putShort((short) this.nodes[i].length);
+		for (int i = 0; i < this.layerSizes.length; i++) {
+			bb.putShort((short) this.layerSizes[i]);
 		}
-		//links (a float each)
+		//links (a float each, origin node by origin node)
 		for (int i = 0; i < this.links.length; i++) {
-			for (int j = 0; j < this.links[i].length; j++) {
-				for (int k = 0; k < this.links[i][j].length; k++) {
-			        bb.putFloat(this.links[i][j][k]);
-				}
-			}
+			for (int j = 0; j < this.links[i].length; j++) bb.putFloat(this.links[i][j]);
 		}
 		if (traceMutation) this.toByteMutation(bb);
 		return bb.array();
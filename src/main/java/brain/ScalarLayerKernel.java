@@ -0,0 +1,18 @@
+package brain;
+
+/**
+ * This class is the scalar implementation of the LayerKernel, working on any JVM.
+ * @author jrl
+ *
+ */
+class ScalarLayerKernel implements LayerKernel {
+
+	@Override
+	public void transmit(float value, float[] weights, int weightsOffset, 
+			float[] target, int targetOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			target[targetOffset + i] += value * weights[weightsOffset + i];
+		}
+	}
+
+}
@@ -1,7 +1,6 @@
 package simulation;
 
 import algorithm.LearningAlgorithm;
-import algorithm.neat.Individual;
 import algorithm.neat.NEATAlgorithm;
 import algorithm.neat.reproduction.Elitism;
 import algorithm.neat.reproduction.ReproductionAlgorithm;
@@ -9,6 +8,7 @@ import brain.Brain;
 import brain.LayeredBrain;
 import tools.View;
 import tools.Evaluation;
+import tools.ParallelEvaluation;
 
 /**
  * This is the first simulation I will do. This will serve as a simple test to see if 
@@ -28,18 +28,16 @@ public class Simulation1 {
 	/**
 	 * This lambda expression serve to determine the fintess of each individuals. <br>
 	 * In this example, the fitness is determined by the power of the output of the brain.
+	 * <br>
+	 * The individuals are evaluated one by one, so a ParallelEvaluation can spread them
+	 * over all the cores. The whole population can also be evaluated at once by giving
+	 * an Evaluation instead. <br>
+	 * The score only depends on the brain, so the evaluation is declared as 
+	 * deterministic : the individuals keeping the brain of their parent are not 
+	 * evaluated again.
 	 */
-	private static Evaluation evaluation = population -> {
-		float best = -1000f;
-		float[] input = new float[] {1};
-		float result;
-		for (Individual individual : population) {
-			result = individual.getBrain().compute(input)[0];
-			individual.updateScore(result);
-			if (result > best) best = result;
-		}
-		System.out.println(best);
-	};
+	private static Evaluation evaluation = Evaluation.deterministic(new ParallelEvaluation(
+			individual -> individual.getBrain().compute(new float[] {1})[0]));
 	
 	/**
 	 * This private function concentrates what is needed to start a new simulation from 
@@ -121,6 +119,7 @@ public class Simulation1 {
 		 * from a save.
 		 * For the brain, we have the method :
 		 *  - Brain.setMaxUsableCores(nbThreads)
+		 *  - Brain.setExecutor(executor)
 		 *  - Brain.setTraceMutation(trace)
 		 * By default, the Learning algorithm will run until stopped. To automatically 
 		 * control that, we have : 
@@ -130,8 +129,10 @@ public class Simulation1 {
 		 * autosaves, we have : 
 		 *  - setAutosaveIterations
 		 *  - setAutosaveTime
+		 * The saves can be written on a background thread while the next generations 
+		 * are evaluated, with :
+		 *  - setBackgroundSaving
 		 */
-		Brain.setMaxUsableCores(3);
 		algo.setRunningTime(10000);
 		algo.setAutosaveTime(1000);
 		/*
@@ -0,0 +1,671 @@
+package tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import algorithm.neat.Individual;
+
+/**
+ * This class evaluates a population in other processes, the workers. <br>
+ * The workers are EvaluationWorker programs connected to a socket opened by this class
+ * on the local machine. They can be started by startLocalWorkers, or by hand. The
+ * individuals are sent as given by Individual.toByte, by batches, and each worker runs
+ * an IndividualEvaluation on them and sends back the scores. <br>
+ * The workers send a heartbeat regularly. A worker that stops answering, or whose
+ * connection is lost, is closed, and the batch it was evaluating is given to an other
+ * worker. New workers can connect at any time, even during an evaluation. If there is
+ * no worker for too long during an evaluation, the evaluation fails instead of waiting 
+ * forever. <br>
+ * Only what is saved by toByte is sent to the workers : the settings of the brains
+ * that are not saved, like the number of jumps of a FlexibleBrain, must be set by the
+ * IndividualEvaluation of the workers.
+ * @author jrl
+ *
+ */
+public class DistributedEvaluation implements Evaluation, AutoCloseable {
+
+	/***********************************************************************************/
+	/*                                 protocol                                        */
+	/***********************************************************************************/
+
+	/**
+	 * message to a new worker : the heartbeat interval in milliseconds (int)
+	 */
+	static final byte CONFIG = 1;
+
+	/**
+	 * message to a worker : the number of individuals (int), then for each individual
+	 * the length of its data (int) and its data
+	 */
+	static final byte BATCH = 2;
+
+	/**
+	 * message from a worker : the number of scores (int), then the scores (float)
+	 */
+	static final byte RESULT = 3;
+
+	/**
+	 * message from a worker telling it is alive
+	 */
+	static final byte HEARTBEAT = 4;
+
+	/**
+	 * message to a worker asking it to end
+	 */
+	static final byte STOP = 5;
+
+	/**
+	 * message from a worker whose evaluation failed : the message of the error (UTF)
+	 */
+	static final byte ERROR = 6;
+
+	/***********************************************************************************/
+	/*                                integrated classes                               */
+	/***********************************************************************************/
+
+	/**
+	 * Private class representing a part of the population sent to a worker.
+	 */
+	private static final class Batch {
+
+		/**
+		 * the number of the evaluation this batch belongs to
+		 */
+		private final int evaluationId;
+
+		/**
+		 * the individuals to evaluate
+		 */
+		private final Individual[] individuals;
+
+		/**
+		 * Constructor of a batch.
+		 * @param evaluationId the number of the evaluation this batch belongs to
+		 * @param individuals the individuals to evaluate
+		 */
+		private Batch(int evaluationId, Individual[] individuals) {
+			this.evaluationId = evaluationId;
+			this.individuals = individuals;
+		}
+
+	}
+
+	/**
+	 * Private class managing the connection to one worker. <br>
+	 * One thread sends the batches to the worker, one at a time, an other one reads
+	 * the messages of the worker.
+	 */
+	private final class WorkerConnection {
+
+		/**
+		 * the socket connected to the worker
+		 */
+		private final Socket socket;
+
+		/**
+		 * the stream of the messages from the worker
+		 */
+		private final DataInputStream in;
+
+		/**
+		 * the stream of the messages to the worker
+		 */
+		private final DataOutputStream out;
+
+		/**
+		 * the time of the last message from the worker, in nanoseconds
+		 */
+		private volatile long lastMessage = System.nanoTime();
+
+		/**
+		 * the scores received for the batch in progress, null while waiting
+		 */
+		private float[] result;
+
+		/**
+		 * the message of the error sent by the worker, null if there is none
+		 */
+		private String error;
+
+		/**
+		 * true once the connection is closed
+		 */
+		private boolean dead;
+
+		/**
+		 * Constructor of the connection.
+		 * @param socket the socket connected to the worker
+		 * @throws IOException if the streams can not be opened
+		 */
+		private WorkerConnection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		/**
+		 * This method starts the threads of the connection.
+		 */
+		private void start() {
+			Thread reader = new Thread(this::read, "evaluation-worker-reader");
+			reader.setDaemon(true);
+			reader.start();
+			Thread sender = new Thread(this::send, "evaluation-worker-sender");
+			sender.setDaemon(true);
+			sender.start();
+		}
+
+		/**
+		 * Private method reading the messages of the worker until the connection ends.
+		 */
+		private void read() {
+			try {
+				while (true) {
+					byte type = this.in.readByte();
+					this.lastMessage = System.nanoTime();
+					if (type == RESULT) {
+						float[] scores = new float[this.in.readInt()];
+						for (int i = 0; i < scores.length; i++) scores[i] = this.in.readFloat();
+						synchronized (this) {
+							this.result = scores;
+							this.notifyAll();
+						}
+					} else if (type == ERROR) {
+						String message = this.in.readUTF();
+						synchronized (this) {
+							this.error = message;
+							this.notifyAll();
+						}
+					} else if (type != HEARTBEAT) {
+						throw new IOException("unknown message " + type);
+					}
+				}
+			} catch (IOException e) {
+				//the worker is gone
+			} finally {
+				this.kill();
+			}
+		}
+
+		/**
+		 * Private method sending the batches to the worker, until the connection ends.
+		 * If the connection ends while the worker has a batch, the batch is given back
+		 * to the other workers.
+		 */
+		private void send() {
+			try {
+				this.out.writeByte(CONFIG);
+				this.out.writeInt(heartbeatInterval);
+				this.out.flush();
+				while (!this.isDead()) {
+					Batch batch = batches.poll(heartbeatInterval, TimeUnit.MILLISECONDS);
+					if (batch == null) {
+						this.checkHeartbeat();
+						continue;
+					}
+					float[] scores = null;
+					try {
+						this.writeBatch(batch);
+						scores = this.waitResult(batch);
+					} finally {
+						if (scores == null) reassign(batch);
+					}
+				}
+			} catch (IOException | InterruptedException e) {
+				//the worker is gone
+			} finally {
+				this.kill();
+			}
+		}
+
+		/**
+		 * Private method sending a batch to the worker.
+		 * @param batch the batch to send
+		 * @throws IOException if the connection is lost
+		 */
+		private void writeBatch(Batch batch) throws IOException {
+			synchronized (this) {
+				this.result = null;
+				this.error = null;
+			}
+			this.out.writeByte(BATCH);
+			this.out.writeInt(batch.individuals.length);
+			for (Individual individual : batch.individuals) {
+				byte[] data = individual.toByte();
+				this.out.writeInt(data.length);
+				this.out.write(data);
+			}
+			this.out.flush();
+		}
+
+		/**
+		 * Private function waiting for the scores of a batch. The scores are given to the
+		 * individuals.
+		 * @param batch the batch sent to the worker
+		 * @return the scores, or null if the worker died before sending them
+		 * @throws InterruptedException if the thread is interrupted
+		 */
+		private synchronized float[] waitResult(Batch batch) throws InterruptedException {
+			while (this.result == null && this.error == null && !this.dead) {
+				this.wait(heartbeatInterval);
+				this.checkHeartbeat();
+			}
+			if (this.error != null) {
+				batchFailed(batch, this.error);
+				return new float[0];
+			}
+			if (this.result == null) return null;
+			if (this.result.length != batch.individuals.length) {
+				this.kill();
+				return null;
+			}
+			batchDone(batch, this.result);
+			return this.result;
+		}
+
+		/**
+		 * Private method closing the connection if the worker has not sent anything for
+		 * too long.
+		 */
+		private void checkHeartbeat() {
+			long silence = System.nanoTime() - this.lastMessage;
+			if (silence > TimeUnit.MILLISECONDS.toNanos(heartbeatTimeout)) this.kill();
+		}
+
+		/**
+		 * Private function telling if the connection is closed.
+		 * @return true if the connection is closed
+		 */
+		private synchronized boolean isDead() {
+			return this.dead;
+		}
+
+		/**
+		 * This method closes the connection, and wakes up the evaluation waiting for the
+		 * workers.
+		 */
+		private void kill() {
+			synchronized (this) {
+				if (this.dead) return;
+				this.dead = true;
+				this.notifyAll();
+				try {
+					this.socket.close();
+				} catch (IOException e) {
+					//already closed
+				}
+			}
+			workers.remove(this);
+			workerLeft();
+		}
+
+		/**
+		 * This method asks the worker to end, then closes the connection.
+		 */
+		private void stop() {
+			try {
+				this.out.writeByte(STOP);
+				this.out.flush();
+			} catch (IOException e) {
+				//already closed
+			}
+			this.kill();
+		}
+
+	}
+
+	/***********************************************************************************/
+	/*                                variables                                        */
+	/***********************************************************************************/
+
+	/**
+	 * the default number of individuals sent to a worker at once
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 16;
+
+	/**
+	 * the default time an evaluation waits while no worker is connected, in milliseconds
+	 */
+	public static final long DEFAULT_WORKER_TIMEOUT = 10000;
+
+	/**
+	 * the socket waiting for the workers
+	 */
+	private final ServerSocket serverSocket;
+
+	/**
+	 * the number of individuals sent to a worker at once
+	 */
+	private final int batchSize;
+
+	/**
+	 * the time between two heartbeats of a worker, in milliseconds
+	 */
+	private volatile int heartbeatInterval = 500;
+
+	/**
+	 * the time without message after which a worker is considered dead, in milliseconds
+	 */
+	private volatile int heartbeatTimeout = 5000;
+
+	/**
+	 * the time an evaluation waits while no worker is connected, in milliseconds
+	 */
+	private volatile long workerTimeout = DEFAULT_WORKER_TIMEOUT;
+
+	/**
+	 * the batches waiting for a worker
+	 */
+	private final LinkedBlockingDeque<Batch> batches = new LinkedBlockingDeque<>();
+
+	/**
+	 * the connected workers
+	 */
+	private final List<WorkerConnection> workers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * the processes started by startLocalWorkers
+	 */
+	private final List<Process> processes = new ArrayList<>();
+
+	/**
+	 * the number of the evaluation in progress
+	 */
+	private int evaluationId;
+
+	/**
+	 * the number of batches of the evaluation in progress not evaluated yet
+	 */
+	private int remainingBatches;
+
+	/**
+	 * the error that stopped the evaluation in progress, null if there is none
+	 */
+	private String evaluationError;
+
+	/**
+	 * true if the evaluation in progress was cancelled
+	 */
+	private boolean cancelled;
+
+	/**
+	 * the number of batches given to an other worker after the death of a worker
+	 */
+	private int nbReassignedBatches;
+
+	/**
+	 * true once this evaluation is closed
+	 */
+	private volatile boolean closed;
+
+	/***********************************************************************************/
+	/*                               constructors                                      */
+	/***********************************************************************************/
+
+	/**
+	 * Constructor opening the socket for the workers on a free port of the local
+	 * machine, with the default batch size.
+	 * @throws IOException if the socket can not be opened
+	 */
+	public DistributedEvaluation() throws IOException {
+		this(0, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Constructor opening the socket for the workers on the local machine.
+	 * @param port the port of the socket, or 0 for a free port
+	 * @param batchSize the number of individuals sent to a worker at once
+	 * @throws IOException if the socket can not be opened
+	 */
+	public DistributedEvaluation(int port, int batchSize) throws IOException {
+		this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		this.batchSize = Math.max(1, batchSize);
+		Thread acceptor = new Thread(this::acceptWorkers, "evaluation-worker-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/***********************************************************************************/
+	/*                                 methods                                         */
+	/***********************************************************************************/
+
+	/**
+	 * getter for the port the workers must connect to
+	 * @return the port of the socket
+	 */
+	public int getPort() {
+		return this.serverSocket.getLocalPort();
+	}
+
+	/**
+	 * getter for the number of connected workers
+	 * @return the number of workers
+	 */
+	public int getNbWorkers() {
+		return this.workers.size();
+	}
+
+	/**
+	 * getter for the number of batches given to an other worker after the death of a
+	 * worker
+	 * @return the number of reassigned batches
+	 */
+	public synchronized int getNbReassignedBatches() {
+		return this.nbReassignedBatches;
+	}
+
+	/**
+	 * Setter for the heartbeats of the workers. It only applies to the workers
+	 * connecting after the call.
+	 * @param interval the time between two heartbeats of a worker, in milliseconds
+	 * @param timeout the time without message after which a worker is considered dead,
+	 * in milliseconds. It should be several times the interval.
+	 */
+	public void setHeartbeat(int interval, int timeout) {
+		this.heartbeatInterval = Math.max(1, interval);
+		this.heartbeatTimeout = Math.max(this.heartbeatInterval, timeout);
+	}
+
+	/**
+	 * Setter for the time an evaluation waits while no worker is connected. Once this
+	 * time is over, the evaluation throws an IllegalStateException. The time is counted
+	 * from the start of the evaluation, or from the death of the last worker.
+	 * @param timeout the time in milliseconds, or 0 to fail at once when there is no 
+	 * worker
+	 */
+	public void setWorkerTimeout(long timeout) {
+		this.workerTimeout = Math.max(0, timeout);
+	}
+
+	/**
+	 * This method starts workers in new processes of this machine, using the same java
+	 * and the same class path as this program.
+	 * @param nbWorkers the number of workers to start
+	 * @param evaluationClass the evaluation used by the workers. It must have a public
+	 * constructor without parameter.
+	 * @throws IOException if a process can not be started
+	 */
+	public void startLocalWorkers(int nbWorkers,
+			Class<? extends IndividualEvaluation> evaluationClass) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin"
+				+ File.separator + "java";
+		for (int i = 0; i < nbWorkers; i++) {
+			ProcessBuilder builder = new ProcessBuilder(java, "-cp",
+					System.getProperty("java.class.path"), EvaluationWorker.class.getName(),
+					InetAddress.getLoopbackAddress().getHostAddress(),
+					Integer.toString(this.getPort()), evaluationClass.getName());
+			builder.inheritIO();
+			synchronized (this.processes) {
+				this.processes.add(builder.start());
+			}
+		}
+	}
+
+	/**
+	 * This method waits for a number of workers to be connected.
+	 * @param nbWorkers the number of workers
+	 * @param timeout the maximum time to wait, in milliseconds
+	 * @return true if the workers are connected, false if the time is over
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+	public boolean awaitWorkers(int nbWorkers, long timeout) throws InterruptedException {
+		long end = System.currentTimeMillis() + timeout;
+		while (this.workers.size() < nbWorkers) {
+			if (System.currentTimeMillis() > end) return false;
+			Thread.sleep(10);
+		}
+		return true;
+	}
+
+	@Override
+	public void evaluate(Individual[] population) {
+		int id;
+		synchronized (this) {
+			this.batches.clear();
+			id = ++this.evaluationId;
+			this.cancelled = false;
+			this.evaluationError = null;
+			this.remainingBatches = (population.length + this.batchSize - 1) / this.batchSize;
+		}
+		for (int start = 0; start < population.length; start += this.batchSize) {
+			int end = Math.min(start + this.batchSize, population.length);
+			Individual[] individuals = new Individual[end - start];
+			System.arraycopy(population, start, individuals, 0, individuals.length);
+			this.batches.add(new Batch(id, individuals));
+		}
+		//waiting for the workers
+		synchronized (this) {
+			long noWorkerSince = -1;
+			while (this.remainingBatches > 0 && !this.cancelled && this.evaluationError == null) {
+				if (this.workers.isEmpty()) {
+					long now = System.nanoTime();
+					if (noWorkerSince < 0) noWorkerSince = now;
+					if (now - noWorkerSince >= TimeUnit.MILLISECONDS.toNanos(this.workerTimeout)) {
+						this.evaluationError = "no worker connected for " + this.workerTimeout + " ms";
+						break;
+					}
+				} else noWorkerSince = -1;
+				try {
+					//the results, the errors and the death of the workers are notified
+					if (noWorkerSince < 0) this.wait();
+					else this.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(noWorkerSince 
+							+ TimeUnit.MILLISECONDS.toNanos(this.workerTimeout) - System.nanoTime())));
+				} catch (InterruptedException e) {
+					this.cancelled = true;
+					Thread.currentThread().interrupt();
+				}
+			}
+			//the results of this evaluation arriving later are ignored
+			this.evaluationId++;
+			this.batches.clear();
+			if (this.evaluationError != null) {
+				throw new IllegalStateException("error while evaluating : " + this.evaluationError);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void cancel() {
+		this.cancelled = true;
+		this.notifyAll();
+	}
+
+	/**
+	 * This method stops the workers and closes the socket. The processes started by
+	 * startLocalWorkers are ended.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		this.cancel();
+		try {
+			this.serverSocket.close();
+		} catch (IOException e) {
+			//already closed
+		}
+		for (WorkerConnection worker : this.workers) worker.stop();
+		synchronized (this.processes) {
+			for (Process process : this.processes) {
+				try {
+					if (!process.waitFor(1, TimeUnit.SECONDS)) process.destroyForcibly();
+				} catch (InterruptedException e) {
+					process.destroyForcibly();
+					Thread.currentThread().interrupt();
+				}
+			}
+			this.processes.clear();
+		}
+	}
+
+	/**
+	 * Private method accepting the workers until the socket is closed.
+	 */
+	private void acceptWorkers() {
+		while (!this.closed) {
+			try {
+				Socket socket = this.serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				WorkerConnection worker = new WorkerConnection(socket);
+				this.workers.add(worker);
+				worker.start();
+			} catch (IOException e) {
+				//the socket is closed, or the worker left at once
+			}
+		}
+	}
+
+	/**
+	 * Private method giving the scores of a batch to its individuals.
+	 * @param batch the evaluated batch
+	 * @param scores the scores of the individuals
+	 */
+	private synchronized void batchDone(Batch batch, float[] scores) {
+		if (batch.evaluationId != this.evaluationId) return;
+		for (int i = 0; i < scores.length; i++) batch.individuals[i].updateScore(scores[i]);
+		this.remainingBatches--;
+		this.notifyAll();
+	}
+
+	/**
+	 * Private method stopping the evaluation after an error of the IndividualEvaluation.
+	 * @param batch the batch whose evaluation failed
+	 * @param message the message of the error
+	 */
+	private synchronized void batchFailed(Batch batch, String message) {
+		if (batch.evaluationId != this.evaluationId) return;
+		this.evaluationError = message;
+		this.notifyAll();
+	}
+
+	/**
+	 * Private method waking up the evaluation after the death of a worker, so it can
+	 * check if there are still workers.
+	 */
+	private synchronized void workerLeft() {
+		this.notifyAll();
+	}
+
+	/**
+	 * Private method giving back a batch whose worker died, so an other worker takes it
+	 * first.
+	 * @param batch the batch to evaluate again
+	 */
+	private synchronized void reassign(Batch batch) {
+		if (batch.evaluationId != this.evaluationId || this.closed) return;
+		this.nbReassignedBatches++;
+		this.batches.addFirst(batch);
+	}
+
+}
@@ -16,4 +16,46 @@ public interface Evaluation {
 	 */
 	public void evaluate(Individual[] population);
 	
+	/**
+	 * This method is called when the learning algorithm is stopped, so that an
+	 * evaluation running on other threads can stop them. By default, it does nothing.
+	 */
+	public default void cancel() {}
+	
+	/**
+	 * This method tells if the score of an individual only depends on its brain. In this
+	 * case, a learning algorithm can keep the scores and give them back to the 
+	 * individuals having the same brain, without evaluating them again. By default, the
+	 * evaluation is not deterministic.
+	 * @return true if the evaluation is deterministic
+	 */
+	public default boolean isDeterministic() {
+		return false;
+	}
+	
+	/**
+	 * This function declares an evaluation as deterministic : the score of an individual
+	 * must only depend on its brain, and not on the other individuals or on randomness.
+	 * @param evaluation the deterministic evaluation
+	 * @return an evaluation doing the same, declared as deterministic
+	 */
+	public static Evaluation deterministic(Evaluation evaluation) {
+		return new Evaluation() {
+			@Override
+			public void evaluate(Individual[] population) {
+				evaluation.evaluate(population);
+			}
+			
+			@Override
+			public void cancel() {
+				evaluation.cancel();
+			}
+			
+			@Override
+			public boolean isDeterministic() {
+				return true;
+			}
+		};
+	}
+	
 }
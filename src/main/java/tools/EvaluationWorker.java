@@ -0,0 +1,129 @@
+package tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+import algorithm.neat.Individual;
+
+/**
+ * This class is the program of a worker of a DistributedEvaluation. <br>
+ * The worker connects to the evaluation, then evaluates the batches of individuals it
+ * receives with an IndividualEvaluation, and sends back the scores. A thread sends a
+ * heartbeat regularly, even during a long evaluation, so the evaluation knows the
+ * worker is alive. If the evaluation of a batch fails, even with an Error, the worker
+ * reports it instead of dying, so the evaluation fails instead of giving the batch to
+ * the other workers. The program ends when the evaluation asks it, or when the
+ * connection is lost. <br>
+ * Arguments : the address of the evaluation, its port, and the name of the class of the
+ * IndividualEvaluation. This class must have a public constructor without parameter.
+ * @author jrl
+ *
+ */
+public class EvaluationWorker {
+
+	/**
+	 * Private constructor, this class is only a program.
+	 */
+	private EvaluationWorker() {}
+
+	/**
+	 * The program of the worker.
+	 * @param args the address of the evaluation, its port, and the name of the class of
+	 * the IndividualEvaluation
+	 * @throws Exception if the connection or the creation of the evaluation fails
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 3) {
+			System.err.println("usage : EvaluationWorker <host> <port> <evaluation class>");
+			System.exit(1);
+		}
+		IndividualEvaluation evaluation = (IndividualEvaluation) Class.forName(args[2])
+				.getDeclaredConstructor().newInstance();
+		try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(
+					new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(socket.getOutputStream()));
+			run(evaluation, in, out);
+		} catch (EOFException e) {
+			//the evaluation is closed
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Private method answering the messages of the evaluation until it asks to stop.
+	 * @param evaluation the function evaluating one individual
+	 * @param in the stream of the messages from the evaluation
+	 * @param out the stream of the messages to the evaluation
+	 * @throws IOException if the connection is lost
+	 */
+	private static void run(IndividualEvaluation evaluation, DataInputStream in,
+			DataOutputStream out) throws IOException {
+		if (in.readByte() != DistributedEvaluation.CONFIG) throw new IOException("no config");
+		startHeartbeat(in.readInt(), out);
+		while (true) {
+			byte type = in.readByte();
+			if (type == DistributedEvaluation.STOP) return;
+			if (type != DistributedEvaluation.BATCH) throw new IOException("unknown message " + type);
+			//reading the whole batch before evaluating it
+			Individual[] individuals = new Individual[in.readInt()];
+			for (int i = 0; i < individuals.length; i++) {
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				individuals[i] = new Individual(ByteBuffer.wrap(data));
+			}
+			float[] scores = new float[individuals.length];
+			try {
+				for (int i = 0; i < individuals.length; i++) {
+					scores[i] = evaluation.evaluate(individuals[i]);
+				}
+			} catch (Throwable e) {
+				//even an error is reported, or the batch would kill the next worker too
+				synchronized (out) {
+					out.writeByte(DistributedEvaluation.ERROR);
+					out.writeUTF(String.valueOf(e));
+					out.flush();
+				}
+				continue;
+			}
+			synchronized (out) {
+				out.writeByte(DistributedEvaluation.RESULT);
+				out.writeInt(scores.length);
+				for (float score : scores) out.writeFloat(score);
+				out.flush();
+			}
+		}
+	}
+
+	/**
+	 * Private method starting the thread sending the heartbeats.
+	 * @param interval the time between two heartbeats, in milliseconds
+	 * @param out the stream of the messages to the evaluation
+	 */
+	private static void startHeartbeat(int interval, DataOutputStream out) {
+		Thread heartbeat = new Thread(() -> {
+			try {
+				while (true) {
+					synchronized (out) {
+						out.writeByte(DistributedEvaluation.HEARTBEAT);
+						out.flush();
+					}
+					Thread.sleep(interval);
+				}
+			} catch (IOException | InterruptedException e) {
+				//the connection is lost
+			}
+		}, "evaluation-worker-heartbeat");
+		heartbeat.setDaemon(true);
+		heartbeat.start();
+	}
+
+}
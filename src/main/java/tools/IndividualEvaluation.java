@@ -0,0 +1,23 @@
+package tools;
+
+import algorithm.neat.Individual;
+
+/**
+ * This functional interface allows us to evaluate one individual at a time. <br>
+ * Unlike Evaluation, it does not see the whole population, so the individuals can be
+ * evaluated by several threads at the same time with a ParallelEvaluation. The function
+ * must not depend on the order in which the individuals are evaluated.
+ * @author jrl
+ *
+ */
+@FunctionalInterface
+public interface IndividualEvaluation {
+
+	/**
+	 * This method is used to determine the score of one individual.
+	 * @param individual The individual that will be evaluated
+	 * @return the score to add to the individual
+	 */
+	public float evaluate(Individual individual);
+	
+}
@@ -0,0 +1,155 @@
+package tools;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import algorithm.neat.Individual;
+
+/**
+ * This class evaluates a population with several threads, from a function evaluating
+ * one individual. <br>
+ * The population is split in parts given to a ForkJoinPool : a thread that finishes
+ * its part early steals the remaining work of the others, so individuals taking more
+ * time to evaluate do not leave the other threads waiting. The score returned for each
+ * individual is added to its score. <br>
+ * By default, the evaluation has its own pool with one thread by available processor,
+ * separated from the pool used by the brains to compute.
+ * @author jrl
+ *
+ */
+public class ParallelEvaluation implements Evaluation {
+	
+	/***********************************************************************************/
+	/*                                integrated class                                 */
+	/***********************************************************************************/
+	
+	/**
+	 * Private class evaluating a part of the population, splitting it while it is big
+	 * enough.
+	 */
+	@SuppressWarnings("serial")
+	private class EvaluatePart extends RecursiveAction {
+		
+		/**
+		 * the population being evaluated
+		 */
+		private final Individual[] population;
+		
+		/**
+		 * the index of the first individual to evaluate
+		 */
+		private final int start;
+		
+		/**
+		 * the index after the last individual to evaluate
+		 */
+		private final int end;
+		
+		/**
+		 * the number of individuals under which the part is not split anymore
+		 */
+		private final int threshold;
+		
+		/**
+		 * Constructor of the task.
+		 * @param population the population being evaluated
+		 * @param start the index of the first individual to evaluate
+		 * @param end the index after the last individual to evaluate
+		 * @param threshold the number of individuals under which the part is not split
+		 */
+		private EvaluatePart(Individual[] population, int start, int end, int threshold) {
+			this.population = population;
+			this.start = start;
+			this.end = end;
+			this.threshold = threshold;
+		}
+		
+		@Override
+		protected void compute() {
+			if (this.end - this.start <= this.threshold) {
+				for (int i = this.start; i < this.end; i++) {
+					Individual individual = this.population[i];
+					individual.updateScore(individualEvaluation.evaluate(individual));
+				}
+				return;
+			}
+			int middle = (this.start + this.end) >>> 1;
+			invokeAll(new EvaluatePart(this.population, this.start, middle, this.threshold),
+					new EvaluatePart(this.population, middle, this.end, this.threshold));
+		}
+		
+	}
+	
+	/***********************************************************************************/
+	/*                                variables                                        */
+	/***********************************************************************************/
+	
+	/**
+	 * the number of parts by thread. More parts give more work to steal.
+	 */
+	private static final int NB_PARTS_BY_THREAD = 8;
+	
+	/**
+	 * the function evaluating one individual
+	 */
+	private final IndividualEvaluation individualEvaluation;
+	
+	/**
+	 * the pool running the evaluations
+	 */
+	private final ForkJoinPool pool;
+	
+	/***********************************************************************************/
+	/*                               constructors                                      */
+	/***********************************************************************************/
+	
+	/**
+	 * Constructor for a parallel evaluation using one thread by available processor.
+	 * @param individualEvaluation the function evaluating one individual
+	 */
+	public ParallelEvaluation(IndividualEvaluation individualEvaluation) {
+		this(individualEvaluation, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Constructor for a parallel evaluation with a given number of threads.
+	 * @param individualEvaluation the function evaluating one individual
+	 * @param nbThreads the number of threads evaluating the individuals
+	 */
+	public ParallelEvaluation(IndividualEvaluation individualEvaluation, int nbThreads) {
+		this(individualEvaluation, new ForkJoinPool(Math.max(1, nbThreads)));
+	}
+	
+	/**
+	 * Constructor for a parallel evaluation on a given pool. The pool is not shut down
+	 * by this class.
+	 * @param individualEvaluation the function evaluating one individual
+	 * @param pool the pool running the evaluations
+	 */
+	public ParallelEvaluation(IndividualEvaluation individualEvaluation, ForkJoinPool pool) {
+		this.individualEvaluation = individualEvaluation;
+		this.pool = pool;
+	}
+	
+	/***********************************************************************************/
+	/*                                 methods                                         */
+	/***********************************************************************************/
+	
+	/**
+	 * getter for the pool running the evaluations.
+	 * @return the pool
+	 */
+	public ForkJoinPool getPool() {
+		return this.pool;
+	}
+	
+	@Override
+	public void evaluate(Individual[] population) {
+		if (population.length == 0) return;
+		int nbParts = this.pool.getParallelism() * NB_PARTS_BY_THREAD;
+		int threshold = Math.max(1, population.length / nbParts);
+		//the exceptions of the evaluation are thrown again here
+		this.pool.invoke(new EvaluatePart(population, 0, population.length, threshold));
+	}
+	
+}
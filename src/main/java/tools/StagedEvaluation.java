@@ -0,0 +1,25 @@
+package tools;
+
+import algorithm.neat.Individual;
+
+/**
+ * This functional interface allows us to evaluate one individual stage by stage. <br>
+ * The budget of the evaluation of an individual, for example its episodes in a
+ * simulation, is split in stages. Each call evaluates one stage and gives the score 
+ * obtained during this stage only, so a SuccessiveHalvingEvaluation can stop the
+ * individuals that are clearly worse than the others before the end of their budget.
+ * @author jrl
+ *
+ */
+@FunctionalInterface
+public interface StagedEvaluation {
+
+	/**
+	 * This method is used to evaluate one stage of an individual.
+	 * @param individual The individual that will be evaluated
+	 * @param stage the number of the stage, starting at 0
+	 * @return the score obtained during this stage, added to the individual
+	 */
+	public float evaluate(Individual individual, int stage);
+	
+}
@@ -0,0 +1,114 @@
+package tools;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import algorithm.neat.Individual;
+
+/**
+ * This class evaluates a population by successive halving. <br>
+ * The individuals are evaluated stage by stage. After each stage, they are ranked by
+ * the score obtained so far, and only the best fraction goes to the next stage : the
+ * others are frozen with their partial score. So most of the budget goes to the 
+ * promising individuals. <br>
+ * Each individual keeps the number of stages it went through. The reproduction 
+ * algorithms rank the individuals by stage first, so the individuals evaluated with the
+ * full budget are selected among themselves exactly as with a complete evaluation, and
+ * the frozen ones only come after them. To keep this, the minimum number of kept 
+ * individuals should be at least the limit of the reproduction algorithm. <br>
+ * Which individuals are frozen depends on the whole population, so this evaluation is
+ * not deterministic.
+ * @author jrl
+ *
+ */
+public class SuccessiveHalvingEvaluation implements Evaluation {
+	
+	/***********************************************************************************/
+	/*                                variables                                        */
+	/***********************************************************************************/
+	
+	/**
+	 * the function evaluating one stage of an individual
+	 */
+	private final StagedEvaluation stagedEvaluation;
+	
+	/**
+	 * the number of stages of the full budget
+	 */
+	private final int nbStages;
+	
+	/**
+	 * the fraction of the individuals going to the next stage
+	 */
+	private final float keptFraction;
+	
+	/**
+	 * the minimum number of individuals going to the next stage
+	 */
+	private final int minKept;
+	
+	/**
+	 * the number of stages evaluated during the last evaluation, all individuals counted
+	 */
+	private long nbEvaluatedStages;
+	
+	/***********************************************************************************/
+	/*                               constructors                                      */
+	/***********************************************************************************/
+	
+	/**
+	 * Constructor for a successive halving evaluation.
+	 * @param stagedEvaluation the function evaluating one stage of an individual
+	 * @param nbStages the number of stages of the full budget. It must be above 0.
+	 * @param keptFraction the fraction of the individuals going to the next stage, 
+	 * between 0 and 1. With 0.5, half of the individuals are frozen after each stage.
+	 * @param minKept the minimum number of individuals going to the next stage
+	 */
+	public SuccessiveHalvingEvaluation(StagedEvaluation stagedEvaluation, int nbStages, 
+			float keptFraction, int minKept) {
+		if (nbStages <= 0) throw new IllegalArgumentException("the number of stages must be above 0");
+		if (keptFraction < 0 || keptFraction > 1) 
+			throw new IllegalArgumentException("the kept fraction must be between 0 and 1");
+		this.stagedEvaluation = stagedEvaluation;
+		this.nbStages = nbStages;
+		this.keptFraction = keptFraction;
+		this.minKept = Math.max(1, minKept);
+	}
+	
+	/***********************************************************************************/
+	/*                                 methods                                         */
+	/***********************************************************************************/
+	
+	/**
+	 * getter for the number of stages evaluated during the last evaluation, all the 
+	 * individuals counted. A complete evaluation would evaluate the number of stages 
+	 * times the size of the population.
+	 * @return the number of evaluated stages
+	 */
+	public long getNbEvaluatedStages() {
+		return this.nbEvaluatedStages;
+	}
+	
+	@Override
+	public void evaluate(Individual[] population) {
+		this.nbEvaluatedStages = 0;
+		Individual[] active = Arrays.copyOf(population, population.length);
+		int nbActive = active.length;
+		for (Individual individual : population) individual.setStage(0);
+		for (int stage = 0; stage < this.nbStages; stage++) {
+			for (int i = 0; i < nbActive; i++) {
+				active[i].updateScore(this.stagedEvaluation.evaluate(active[i], stage));
+				active[i].setStage(stage + 1);
+			}
+			this.nbEvaluatedStages += nbActive;
+			if (stage == this.nbStages - 1) break;
+			//only the best ones go to the next stage
+			int nbKept = Math.max(this.minKept, (int) Math.ceil(nbActive * this.keptFraction));
+			if (nbKept >= nbActive) continue;
+			Arrays.sort(active, 0, nbActive, 
+					Comparator.comparingDouble(Individual::getScore).reversed());
+			nbActive = nbKept;
+		}
+	}
+	
+}
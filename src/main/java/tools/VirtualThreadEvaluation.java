@@ -0,0 +1,293 @@
+package tools;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import algorithm.neat.Individual;
+
+/**
+ * This class evaluates a population with one thread by individual, from a function
+ * evaluating one individual. <br>
+ * It is made for evaluations spending most of their time waiting, for example for a
+ * simulator behind a pipe or a socket. On a Java 21 runtime, each individual gets a
+ * virtual thread, so tens of thousands of individuals can wait at the same time without
+ * a big pool. On an older runtime, a pool of platform threads of a given size is used
+ * instead. This pool is created once and kept from one evaluation to the next, its 
+ * threads ending after some time without work. <br>
+ * The threads only live during the evaluation : when evaluate returns, every task is
+ * finished. If the evaluation is cancelled, by cancel or by interrupting the thread
+ * calling evaluate, the running tasks are interrupted, and the individuals not evaluated
+ * yet keep their score. A cancel coming just before evaluate is not lost : this
+ * evaluation returns without evaluating any individual.
+ * @author jrl
+ *
+ */
+public class VirtualThreadEvaluation implements Evaluation {
+	
+	/***********************************************************************************/
+	/*                                integrated class                                 */
+	/***********************************************************************************/
+	
+	/**
+	 * Private class evaluating one individual. <br>
+	 * A cancelled future is done as soon as it is cancelled, even if its thread is still
+	 * running, so each task also counts down when its thread really leaves it.
+	 */
+	private class EvaluationTask extends FutureTask<Void> {
+		
+		/**
+		 * the count of the tasks that are not finished
+		 */
+		private final CountDownLatch finished;
+		
+		/**
+		 * Constructor of the task.
+		 * @param individual the individual to evaluate
+		 * @param finished the count of the tasks that are not finished
+		 */
+		private EvaluationTask(Individual individual, CountDownLatch finished) {
+			super(() -> individual.updateScore(individualEvaluation.evaluate(individual)), 
+					null);
+			this.finished = finished;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				super.run();
+			} finally {
+				this.finished.countDown();
+			}
+		}
+		
+	}
+	
+	/***********************************************************************************/
+	/*                                variables                                        */
+	/***********************************************************************************/
+	
+	/**
+	 * the default number of platform threads used when virtual threads are not
+	 * available
+	 */
+	public static final int DEFAULT_FALLBACK_THREADS = 256;
+	
+	/**
+	 * the time after which an idle thread of the fallback pool ends, in seconds
+	 */
+	private static final long FALLBACK_KEEP_ALIVE = 60;
+	
+	/**
+	 * the method creating an executor with one virtual thread by task, null if the
+	 * runtime does not have it
+	 */
+	private static final Method VIRTUAL_EXECUTOR = findVirtualExecutor();
+	
+	/**
+	 * the function evaluating one individual
+	 */
+	private final IndividualEvaluation individualEvaluation;
+	
+	/**
+	 * the number of platform threads used when virtual threads are not available
+	 */
+	private final int nbFallbackThreads;
+	
+	/**
+	 * the pool of platform threads used when virtual threads are not available, created
+	 * at the first need
+	 */
+	private ExecutorService fallbackExecutor;
+	
+	/**
+	 * the tasks of the evaluation in progress, null if there is none
+	 */
+	private volatile Future<?>[] tasks;
+	
+	/**
+	 * true if the evaluation in progress, or the next one if there is none, was 
+	 * cancelled
+	 */
+	private volatile boolean cancelled;
+	
+	/***********************************************************************************/
+	/*                               constructors                                      */
+	/***********************************************************************************/
+	
+	/**
+	 * Constructor for an evaluation with one thread by individual.
+	 * @param individualEvaluation the function evaluating one individual
+	 */
+	public VirtualThreadEvaluation(IndividualEvaluation individualEvaluation) {
+		this(individualEvaluation, DEFAULT_FALLBACK_THREADS);
+	}
+	
+	/**
+	 * Constructor for an evaluation with one thread by individual.
+	 * @param individualEvaluation the function evaluating one individual
+	 * @param nbFallbackThreads the number of platform threads used when virtual threads
+	 * are not available
+	 */
+	public VirtualThreadEvaluation(IndividualEvaluation individualEvaluation, 
+			int nbFallbackThreads) {
+		this.individualEvaluation = individualEvaluation;
+		this.nbFallbackThreads = Math.max(1, nbFallbackThreads);
+	}
+	
+	/***********************************************************************************/
+	/*                              static functions                                   */
+	/***********************************************************************************/
+	
+	/**
+	 * Private function looking for Executors.newVirtualThreadPerTaskExecutor, which only
+	 * exists from Java 21.
+	 * @return the method, or null if it does not exist
+	 */
+	private static Method findVirtualExecutor() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * This function tells if the individuals are evaluated by virtual threads.
+	 * @return true if the runtime has virtual threads, false if a pool of platform 
+	 * threads is used
+	 */
+	public static boolean hasVirtualThreads() {
+		return VIRTUAL_EXECUTOR != null;
+	}
+	
+	/***********************************************************************************/
+	/*                                 methods                                         */
+	/***********************************************************************************/
+	
+	/**
+	 * Private function creating the executor of one evaluation.
+	 * @return an executor with one virtual thread by task, or null if the pool of 
+	 * platform threads must be used
+	 */
+	private static ExecutorService newVirtualExecutor() {
+		if (VIRTUAL_EXECUTOR != null) {
+			try {
+				return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				//virtual threads are disabled (preview feature of Java 19 and 20)
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Private function giving the pool of platform threads, creating it at the first 
+	 * call. Its threads are daemons and end when they have nothing to do for some time, 
+	 * so the pool never needs to be shut down.
+	 * @return the pool of platform threads
+	 */
+	private synchronized ExecutorService getFallbackExecutor() {
+		if (this.fallbackExecutor == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(this.nbFallbackThreads, 
+					this.nbFallbackThreads, FALLBACK_KEEP_ALIVE, TimeUnit.SECONDS, 
+					new LinkedBlockingQueue<>(), task -> {
+						Thread thread = new Thread(task, "individual-evaluation");
+						thread.setDaemon(true);
+						return thread;
+					});
+			pool.allowCoreThreadTimeOut(true);
+			this.fallbackExecutor = pool;
+		}
+		return this.fallbackExecutor;
+	}
+	
+	@Override
+	public void evaluate(Individual[] population) {
+		ExecutorService virtualExecutor = newVirtualExecutor();
+		ExecutorService executor = (virtualExecutor != null) ? virtualExecutor 
+				: this.getFallbackExecutor();
+		CountDownLatch finished = new CountDownLatch(population.length);
+		EvaluationTask[] futures = new EvaluationTask[population.length];
+		this.tasks = futures;
+		try {
+			for (int i = 0; i < population.length; i++) {
+				if (this.cancelled) {
+					finished.countDown(); //this task will never run
+					continue;
+				}
+				futures[i] = new EvaluationTask(population[i], finished);
+				executor.execute(futures[i]);
+			}
+			//waiting for the tasks
+			for (int i = 0; i < futures.length && !this.cancelled; i++) {
+				try {
+					if (futures[i] != null) futures[i].get();
+				} catch (InterruptedException e) {
+					this.cancelled = true;
+					Thread.currentThread().interrupt();
+				} catch (CancellationException e) {
+					this.cancelled = true;
+				} catch (ExecutionException e) {
+					this.cancelled = true;
+					throw new IllegalStateException("error while evaluating", e.getCause());
+				}
+			}
+		} finally {
+			if (this.cancelled) cancelAll(futures);
+			this.tasks = null;
+			if (virtualExecutor != null) virtualExecutor.shutdown();
+			awaitTasks(finished);
+			//the cancellation only applies to this evaluation
+			this.cancelled = false;
+		}
+	}
+	
+	@Override
+	public void cancel() {
+		this.cancelled = true;
+		Future<?>[] futures = this.tasks;
+		if (futures != null) cancelAll(futures);
+	}
+	
+	/**
+	 * Private function cancelling the tasks of an evaluation, interrupting the running 
+	 * ones.
+	 * @param futures the tasks of the evaluation
+	 */
+	private static void cancelAll(Future<?>[] futures) {
+		for (Future<?> future : futures) {
+			if (future != null) future.cancel(true);
+		}
+	}
+	
+	/**
+	 * Private function waiting for all the tasks of an evaluation to be finished. A
+	 * cancelled task counts as finished only once its thread has left the evaluation 
+	 * function. If the calling thread is interrupted, the tasks are still waited for, 
+	 * and the interruption is restored at the end.
+	 * @param finished the count of the tasks that are not finished
+	 */
+	private static void awaitTasks(CountDownLatch finished) {
+		boolean interrupted = Thread.interrupted();
+		while (true) {
+			try {
+				finished.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+	
+}
@@ -8,6 +8,8 @@ import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
@@ -207,5 +209,188 @@ class TestNEATAlgorithm {
 			algo.reproduce();
 		}
 	}
+	
+	@Test
+	void testFitnessCache() {
+		LayeredBrain.setDefaultLinkValue(0);
+		LayeredBrain.setDefaultLinkVariation(1);
+		int[] nbEvaluated = new int[1];
+		Evaluation evaluation = population -> {
+			for (Individual individual : population) {
+				nbEvaluated[0]++;
+				individual.updateScore(individual.getBrain().compute(new float[] {1})[0]);
+			}
+		};
+		ReproductionAlgorithm reproduction = new Elitism(5, 10, 15, 15);
+		reproduction.getMutationManager().setChangeLinkFactor(1f, 0.5f);
+		NEATAlgorithm algo = new NEATAlgorithm(new LayeredBrain(1, 1, 1, 3), reproduction, 
+				Evaluation.deterministic(evaluation));
+		algo.setFitnessCache(100);
+		algo.evaluate();
+		algo.reproduce();
+		//the perfect clones are not evaluated again
+		nbEvaluated[0] = 0;
+		Individual[] population = algo.getPopulation();
+		algo.evaluate();
+		FitnessCache cache = algo.getFitnessCache();
+		assertEquals(population.length, cache.getNbHits() + cache.getNbMisses() - 1);
+		assertEquals(cache.getNbMisses() - 1, nbEvaluated[0]);
+		assertTrue(nbEvaluated[0] < population.length);
+		for (Individual individual : population) {
+			assertEquals(individual.getBrain().compute(new float[] {1})[0], 
+					individual.getScore());
+		}
+		//without the declaration, everybody is evaluated
+		NEATAlgorithm algo2 = new NEATAlgorithm(new LayeredBrain(1, 1, 1, 3), reproduction, 
+				evaluation);
+		algo2.setFitnessCache(100);
+		algo2.evaluate();
+		algo2.reproduce();
+		nbEvaluated[0] = 0;
+		algo2.evaluate();
+		assertEquals(algo2.getPopulation().length, nbEvaluated[0]);
+	}
+	
+	@Test
+	void testFitnessCacheEviction() {
+		FitnessCache cache = new FitnessCache(2);
+		LayeredBrain.setDefaultLinkValue(0);
+		LayeredBrain.setDefaultLinkVariation(1);
+		Individual[] individuals = new Individual[3];
+		for (int i = 0; i < 3; i++) individuals[i] = new Individual(new LayeredBrain(1, 1, 1, 3));
+		Evaluation evaluation = population -> {
+			for (Individual individual : population) individual.updateScore(1);
+		};
+		cache.evaluate(new Individual[] {individuals[0]}, evaluation);
+		cache.evaluate(new Individual[] {individuals[1]}, evaluation);
+		//using the first one makes the second the least recently used
+		cache.evaluate(new Individual[] {new Individual(individuals[0])}, evaluation);
+		assertEquals(1, cache.getNbHits());
+		cache.evaluate(new Individual[] {individuals[2]}, evaluation);
+		assertEquals(2, cache.size());
+		cache.evaluate(new Individual[] {new Individual(individuals[0])}, evaluation);
+		assertEquals(2, cache.getNbHits());
+		cache.evaluate(new Individual[] {new Individual(individuals[1])}, evaluation);
+		assertEquals(2, cache.getNbHits());
+		assertEquals(4, cache.getNbMisses());
+		//the scores of a stopped evaluation are not kept
+		cache.clear();
+		Individual[] twins = new Individual[] {individuals[0], new Individual(individuals[0]), 
+				individuals[1]};
+		cache.evaluate(twins, population -> population[0].updateScore(5), () -> true);
+		assertEquals(0, cache.size());
+		assertEquals(0, twins[1].getScore());
+		cache.evaluate(new Individual[] {individuals[1]}, evaluation);
+		assertEquals(1, cache.size());
+		Individual clone = new Individual(individuals[1]);
+		cache.evaluate(new Individual[] {clone}, evaluation);
+		assertEquals(1, clone.getScore());
+	}
+	
+	@Test
+	void testBackgroundSaving() throws IOException {
+		File folder = new File("saves/testBackgroundSaving");
+		if (folder.exists()) {
+			deleteFolder(folder);
+		}
+		Evaluation evaluation = population -> {
+			for (Individual individual : population) {
+				individual.updateScore(individual.getBrain().compute(new float[] {1})[0]);
+			}
+		};
+		ReproductionAlgorithm reproduction = new Elitism(5, 10, 15, 15);
+		reproduction.getMutationManager().setChangeLinkFactor(0.5f, 0.5f);
+		NEATAlgorithm algo = new NEATAlgorithm(new LayeredBrain(1, 1, 2, 3), reproduction, evaluation);
+		algo.setRegistrationFolderName("saves/testBackgroundSaving");
+		algo.setBackgroundSaving(1);
+		//the saves are the generations at the time of the call
+		byte[][][] expected = new byte[3][][];
+		for (int i = 0; i < 3; i++) {
+			algo.saveGenealogy();
+			algo.save();
+			Individual[] population = algo.getPopulation().clone();
+			Arrays.sort(population, Comparator.comparingInt(Individual::getId));
+			expected[i] = new byte[population.length][];
+			for (int j = 0; j < population.length; j++) expected[i][j] = population[j].toByte();
+			algo.evaluate();
+			algo.reproduce();
+		}
+		algo.flushSaves();
+		for (int i = 0; i < 3; i++) {
+			Individual[] saved = NEATAlgorithm.restorePopulation(
+					"saves/testBackgroundSaving/generation_" + i);
+			Arrays.sort(saved, Comparator.comparingInt(Individual::getId));
+			assertEquals(expected[i].length, saved.length);
+			for (int j = 0; j < saved.length; j++) {
+				assertArrayEquals(expected[i][j], saved[j].toByte());
+			}
+			File genealogy = new File(folder + "/generations/generation_" + i + ".bin");
+			assertEquals(12 * saved.length, Files.size(genealogy.toPath()));
+		}
+		//the last checkpoint is complete
+		NEATAlgorithm restored = (NEATAlgorithm) LearningAlgorithm.restore(
+				"saves/testBackgroundSaving", null);
+		assertEquals(2, restored.getNumGeneration());
+		algo.setBackgroundSaving(0);
+	}
+	
+	@Test
+	void testStopDuringEvaluation() throws Exception {
+		File folder = new File("saves/testStopDuringEvaluation");
+		if (folder.exists()) {
+			deleteFolder(folder);
+		}
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch cancelled = new CountDownLatch(1);
+		CountDownLatch returned = new CountDownLatch(1);
+		//the second generation is only partly evaluated when the algorithm is stopped
+		Evaluation evaluation = new Evaluation() {
+			private int nbEvaluations = 0;
+			@Override
+			public void evaluate(Individual[] population) {
+				if (this.nbEvaluations++ == 0) return;
+				population[0].updateScore(100);
+				started.countDown();
+				try {
+					cancelled.await(30, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				returned.countDown();
+			}
+			@Override
+			public void cancel() {
+				cancelled.countDown();
+			}
+		};
+		NEATAlgorithm algo = new NEATAlgorithm(new LayeredBrain(1, 1, 1, 1), 
+				new Elitism(2, 2, 2, 4), evaluation);
+		algo.setRegistrationFolderName("saves/testStopDuringEvaluation");
+		algo.start();
+		algo.playPause();
+		assertTrue(started.await(30, TimeUnit.SECONDS));
+		int[] ids = Arrays.stream(algo.getPopulation()).mapToInt(Individual::getId).sorted().toArray();
+		algo.stop();
+		assertTrue(returned.await(30, TimeUnit.SECONDS));
+		//waiting for the checkpoint of the stop
+		File settings = new File(folder, "settings.bin");
+		long limit = System.currentTimeMillis() + 30000;
+		while (System.currentTimeMillis() < limit) {
+			//1 byte for the type, 49 for the reproduction, then the number of the generation
+			byte[] bytes = settings.exists() ? Files.readAllBytes(settings.toPath()) : new byte[0];
+			if (bytes.length >= 54 && ByteBuffer.wrap(bytes).getInt(50) >= 1) break;
+			Thread.sleep(20);
+		}
+		Thread.sleep(300);
+		//the saved population is the last complete generation
+		assertEquals(1, algo.getNumGeneration());
+		NEATAlgorithm restored = (NEATAlgorithm) LearningAlgorithm.restore(
+				"saves/testStopDuringEvaluation", null);
+		assertEquals(1, restored.getNumGeneration());
+		assertArrayEquals(ids, Arrays.stream(restored.getPopulation())
+				.mapToInt(Individual::getId).sorted().toArray());
+		assertFalse(new File(folder, "generation_2").exists());
+		assertFalse(new File(folder, "generations/generation_2.bin").exists());
+	}
 
 }
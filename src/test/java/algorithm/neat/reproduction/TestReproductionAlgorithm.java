@@ -3,6 +3,11 @@ package algorithm.neat.reproduction;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
@@ -70,5 +75,50 @@ class TestReproductionAlgorithm {
 			assertEquals(originalArray[i], copyArray[i]);
 		}
 	}
+	
+	@Test
+	void testTopSelection() {
+		Random random = new Random(42);
+		Individual[] population = new Individual[2000];
+		for (int i = 0; i < population.length; i++) {
+			population[i] = new Individual(new LayeredBrain(0,0,0,0));
+			//few different values to get ties, with negative scores and zeros
+			population[i].updateScore((random.nextInt(41) - 20) / 4f);
+			if (random.nextInt(10) == 0) population[i].updateScore(-0f - population[i].getScore());
+			population[i].setStage(random.nextInt(3));
+		}
+		for (int nbSelected : new int[] {1, 15, 300, 2000, 5000}) {
+			Individual[] sorted = population.clone();
+			Arrays.sort(sorted, Comparator.comparingLong(TopSelection::rankKey).reversed());
+			Individual[] selected = population.clone();
+			int nbRanked = TopSelection.select(selected, nbSelected);
+			assertEquals(Math.min(nbSelected, population.length), nbRanked);
+			for (int i = 0; i < nbRanked; i++) assertSame(sorted[i], selected[i]);
+			//the population keeps all its individuals
+			Set<Individual> all = new HashSet<>(Arrays.asList(selected));
+			assertEquals(population.length, all.size());
+		}
+		assertEquals(0, TopSelection.select(new Individual[0], 5));
+	}
+	
+	@Test
+	void testRankKey() {
+		//the stage first, then the score as Float.compare orders it
+		float[] scores = {Float.NEGATIVE_INFINITY, -3.5f, -1e-30f, 0f, 1e-30f, 2f, 
+				Float.POSITIVE_INFINITY};
+		Individual[] individuals = new Individual[2 * scores.length];
+		for (int stage = 0; stage < 2; stage++) {
+			for (int i = 0; i < scores.length; i++) {
+				Individual individual = new Individual(new LayeredBrain(0,0,0,0));
+				individual.updateScore(scores[i]);
+				individual.setStage(stage);
+				individuals[stage * scores.length + i] = individual;
+			}
+		}
+		for (int i = 1; i < individuals.length; i++) {
+			assertTrue(TopSelection.rankKey(individuals[i - 1]) 
+					< TopSelection.rankKey(individuals[i]));
+		}
+	}
 
 }
@@ -2,11 +2,22 @@ package brain;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 
+import com.sun.management.ThreadMXBean;
+
 import brain.mutation.Mutation;
 import brain.mutation.MutationAdditionLink;
 import brain.mutation.MutationAdditionNode;
@@ -181,6 +192,324 @@ class TestBrain {
 		assertEquals(2f, results[1]);
 	}
 	
+	@Test
+	void testFlexibleBrainComputeAfterMutation() {
+		Brain.setMaxUsableCores(1);
+		FlexibleBrain.setTimeToCompute(2);
+		FlexibleBrain b = new FlexibleBrain(1, 2, 1);
+		float[] input = new float[] {1f};
+		b.addLink(b.getInputs()[0], b.getHidden()[0], 2f);
+		b.addLink(b.getHidden()[0], b.getOutputs()[0], 1.5f);
+		assertEquals(3f, b.compute(input)[0]);
+		//each mutation must be seen by the next computing
+		b.addLink(b.getInputs()[0], b.getOutputs()[0], 1f);
+		assertEquals(5f, b.compute(input)[0]);
+		for (int i = 0; i < b.getLinks().size(); i++) {
+			if (b.getLinks().get(i).getTarget() == b.getOutputs()[0] 
+					&& b.getLinks().get(i).getOrigin() == b.getInputs()[0]) b.deleteLink(i);
+		}
+		assertEquals(3f, b.compute(input)[0]);
+		b.addLink(b.getInputs()[0], b.getHidden()[1], 1f);
+		b.addLink(b.getHidden()[1], b.getOutputs()[0], 1f);
+		assertEquals(4f, b.compute(input)[0]);
+		b.deleteNode(0);
+		assertEquals(1f, b.compute(input)[0]);
+		b.addNode();
+		b.addLink(b.getInputs()[0], b.getHidden()[1], 4f);
+		b.addLink(b.getHidden()[1], b.getOutputs()[0], 1f);
+		assertEquals(5f, b.compute(input)[0]);
+	}
+	
+	@Test
+	void testFlexibleBrainFeedForward() {
+		Brain.setMaxUsableCores(1);
+		FlexibleBrain b1 = new FlexibleBrain(3, 12, 2);
+		//links only going forward : no cycle
+		int n = 0;
+		for (int i = 0; i < 3; i++) for (int j = 0; j < 12; j += 2) {
+			b1.addLink(b1.getInputs()[i], b1.getHidden()[j], ((n++ % 7) - 3) / 4f);
+		}
+		for (int i = 0; i < 12; i++) for (int j = i + 1; j < 12; j += 3) {
+			b1.addLink(b1.getHidden()[i], b1.getHidden()[j], ((n++ % 5) - 2) / 3f);
+		}
+		for (int i = 0; i < 12; i++) {
+			b1.addLink(b1.getHidden()[i], b1.getOutputs()[i % 2], ((n++ % 9) - 4) / 5f);
+		}
+		b1.addLink(b1.getInputs()[1], b1.getOutputs()[1], 0.5f);
+		//the same brain with a cycle that does not change the signal
+		FlexibleBrain b2 = (FlexibleBrain) b1.duplicate();
+		b2.addLink(b2.getHidden()[5], b2.getHidden()[5], 0f);
+		float[] input = new float[] {1f, -0.5f, 2f};
+		for (int time : new int[] {1, 3, 12, 20}) {
+			FlexibleBrain.setTimeToCompute(time);
+			float[] results1 = b1.compute(input);
+			float[] results2 = b2.compute(input);
+			for (int o = 0; o < 2; o++) {
+				assertEquals(results2[o], results1[o], 1e-4 * (1 + Math.abs(results2[o])));
+			}
+		}
+	}
+	
+	@Test
+	void testFlexibleBrainShortInputs() {
+		Brain.setMaxUsableCores(1);
+		FlexibleBrain b = new FlexibleBrain(3, 1, 1);
+		b.addLink(b.getInputs()[0], b.getOutputs()[0], 1f);
+		b.addLink(b.getInputs()[1], b.getHidden()[0], 2f);
+		b.addLink(b.getInputs()[2], b.getHidden()[0], 4f);
+		b.addLink(b.getHidden()[0], b.getOutputs()[0], 1f);
+		FlexibleBrain cyclic = (FlexibleBrain) b.duplicate();
+		cyclic.addLink(cyclic.getHidden()[0], cyclic.getHidden()[0], 0f);
+		//the missing inputs are 0, whatever the previous computing
+		for (int time : new int[] {1, 2, 20}) {
+			FlexibleBrain.setTimeToCompute(time);
+			for (FlexibleBrain brain : new FlexibleBrain[] {b, cyclic}) {
+				float[] expected = brain.compute(new float[] {3f, 0f, 0f});
+				brain.compute(new float[] {1f, 1f, 1f});
+				assertArrayEquals(expected, brain.compute(new float[] {3f}));
+			}
+		}
+		b.setStateful(true);
+		b.compute(new float[] {1f, 1f, 1f});
+		assertArrayEquals(new float[] {6f}, b.compute(new float[] {0f}));
+		assertArrayEquals(new float[] {0f}, b.compute(new float[] {0f}));
+	}
+	
+	@Test
+	void testFlexibleBrainBinaryAfterDeleteNode() {
+		Brain.setTraceMutation(false);
+		FlexibleBrain.setTimeToCompute(3);
+		FlexibleBrain b = new FlexibleBrain(2, 4, 2);
+		for (int i = 0; i < 4; i++) {
+			b.addLink(b.getInputs()[i % 2], b.getHidden()[i], i + 1);
+			b.addLink(b.getHidden()[i], b.getOutputs()[i % 2], 0.5f);
+		}
+		b.addLink(b.getHidden()[3], b.getHidden()[2], 2);
+		b.deleteNode(1);
+		float[] input = new float[] {1, 2};
+		byte[] data = b.toBytes();
+		//coordinates of the link with a factor 2 after the deletion : hidden 2 to hidden 1
+		ByteBuffer bb = ByteBuffer.wrap(data);
+		boolean found = false;
+		for (int position = 11; position < data.length; position += 10) {
+			if (bb.getFloat(position + 6) != 2) continue;
+			assertEquals(2, data[position]);
+			assertEquals(2, bb.getShort(position + 1));
+			assertEquals(2, data[position + 3]);
+			assertEquals(1, bb.getShort(position + 4));
+			found = true;
+		}
+		assertTrue(found);
+		Brain restored = Brain.restore(ByteBuffer.wrap(data));
+		assertArrayEquals(b.compute(input), restored.compute(input));
+		assertArrayEquals(data, b.duplicate().toBytes());
+	}
+	
+	@Test
+	void testFlexibleBrainPruning() {
+		Brain.setMaxUsableCores(1);
+		Brain.setTraceMutation(false);
+		FlexibleBrain.setTimeToCompute(4);
+		FlexibleBrain b1 = new FlexibleBrain(2, 5, 1);
+		b1.addLink(b1.getInputs()[0], b1.getHidden()[0], 1.5f);
+		b1.addLink(b1.getHidden()[0], b1.getHidden()[1], -2f);
+		b1.addLink(b1.getHidden()[1], b1.getOutputs()[0], 0.5f);
+		b1.addLink(b1.getInputs()[1], b1.getOutputs()[0], 3f);
+		FlexibleBrain b2 = (FlexibleBrain) b1.duplicate();
+		//links never reached from an input
+		b2.addLink(b2.getHidden()[2], b2.getHidden()[3], 1f);
+		b2.addLink(b2.getHidden()[3], b2.getHidden()[2], 1f);
+		b2.addLink(b2.getHidden()[3], b2.getOutputs()[0], 1f);
+		//links never reaching an output
+		b2.addLink(b2.getInputs()[1], b2.getHidden()[4], 1f);
+		b2.addLink(b2.getHidden()[0], b2.getHidden()[4], 1f);
+		b2.addLink(b2.getHidden()[4], b2.getHidden()[4], 1f);
+		assertEquals(4, b1.getNbComputedLinks());
+		assertEquals(4, b2.getNbComputedLinks());
+		float[] input = new float[] {1f, -1f};
+		assertArrayEquals(b1.compute(input), b2.compute(input));
+		//the saved brain keeps all the links
+		assertEquals(10, ((FlexibleBrain) Brain.restore(ByteBuffer.wrap(b2.toBytes())))
+				.getLinks().size());
+		//a link making the dead nodes reachable
+		b2.addLink(b2.getHidden()[1], b2.getHidden()[2], 1f);
+		assertEquals(8, b2.getNbComputedLinks());
+	}
+	
+	@Test
+	void testFlexibleBrainGeneratedCode() {
+		Brain.setMaxUsableCores(1);
+		FlexibleBrain.setBytecodeThreshold(0);
+		FlexibleBrain b1 = new FlexibleBrain(3, 300, 2);
+		for (int i = 0; i < 3000; i++) b1.addRandomLink(1);
+		//a brain without cycle
+		FlexibleBrain b2 = new FlexibleBrain(3, 40, 2);
+		for (int i = 0; i < 40; i++) {
+			b2.addLink(b2.getInputs()[i % 3], b2.getHidden()[i], (i % 7 - 3) / 2f);
+			b2.addLink(b2.getHidden()[i], b2.getOutputs()[i % 2], (i % 5 - 2) / 3f);
+			if (i > 0) b2.addLink(b2.getHidden()[i - 1], b2.getHidden()[i], 0.75f);
+		}
+		float[] input = new float[] {1f, -0.5f, 2f};
+		for (int time : new int[] {2, 50}) {
+			FlexibleBrain.setTimeToCompute(time);
+			//b1 and b2 are never computed, so their copies have their own compiled form
+			FlexibleBrain reference1 = new FlexibleBrain(b1);
+			FlexibleBrain copy1 = new FlexibleBrain(b1);
+			FlexibleBrain copy2 = new FlexibleBrain(b2);
+			FlexibleBrain.setBytecodeThreshold(0);
+			float[] expected1 = reference1.compute(input);
+			float[] expected2 = new FlexibleBrain(b2).compute(input);
+			assertFalse(reference1.hasGeneratedCode());
+			//the generated code gives exactly the same results
+			FlexibleBrain.setBytecodeThreshold(3);
+			for (int i = 0; i < 5; i++) {
+				assertArrayEquals(expected1, copy1.compute(input));
+				assertArrayEquals(expected2, copy2.compute(input));
+			}
+			assertTrue(copy1.hasGeneratedCode());
+			assertTrue(copy2.hasGeneratedCode());
+			//the clones of an elite keep its code
+			FlexibleBrain clone = (FlexibleBrain) copy1.duplicate();
+			assertTrue(clone.hasGeneratedCode());
+			assertArrayEquals(expected1, clone.compute(input));
+			//a mutation throws the code away, only for the mutated brain
+			copy1.addNode();
+			assertFalse(copy1.hasGeneratedCode());
+			assertTrue(clone.hasGeneratedCode());
+			assertFalse(reference1.hasGeneratedCode());
+		}
+		FlexibleBrain.setBytecodeThreshold(0);
+	}
+	
+	@Test
+	void testFlexibleBrainLocalTimeToCompute() {
+		Brain.setMaxUsableCores(1);
+		FlexibleBrain b1 = new FlexibleBrain(1, 1, 1);
+		b1.addLink(b1.getInputs()[0], b1.getHidden()[0], 2f);
+		b1.addLink(b1.getHidden()[0], b1.getHidden()[0], 0.5f);
+		b1.addLink(b1.getHidden()[0], b1.getOutputs()[0], 1f);
+		float[] input = new float[] {1f};
+		FlexibleBrain.setTimeToCompute(3);
+		float[] expected = b1.compute(input);
+		FlexibleBrain.setTimeToCompute(1);
+		FlexibleBrain b2 = new FlexibleBrain(b1);
+		b1.setLocalTimeToCompute(3);
+		assertEquals(3, b1.getTimeToCompute());
+		assertEquals(1, b2.getTimeToCompute());
+		assertArrayEquals(expected, b1.compute(input));
+		assertNotEquals(expected[0], b2.compute(input)[0]);
+		//the copies keep the number of jumps
+		assertArrayEquals(expected, b1.duplicate().compute(input));
+		b1.setLocalTimeToCompute(0);
+		assertEquals(1, b1.getTimeToCompute());
+	}
+	
+	@Test
+	void testFlexibleBrainConvergence() {
+		Brain.setMaxUsableCores(1);
+		FlexibleBrain.setTimeToCompute(200);
+		float[] input = new float[] {1f};
+		//the hidden node tends to 4
+		FlexibleBrain b1 = new FlexibleBrain(1, 1, 1);
+		b1.addLink(b1.getInputs()[0], b1.getHidden()[0], 2f);
+		b1.addLink(b1.getHidden()[0], b1.getHidden()[0], 0.5f);
+		b1.addLink(b1.getHidden()[0], b1.getOutputs()[0], 1f);
+		float expected = b1.compute(input)[0];
+		b1.setConvergence(1e-6f);
+		assertEquals(expected, b1.compute(input)[0], 1e-3f);
+		//the hidden node does not change after the first jump
+		FlexibleBrain b2 = new FlexibleBrain(1, 1, 1);
+		b2.addLink(b2.getInputs()[0], b2.getHidden()[0], 2f);
+		b2.addLink(b2.getHidden()[0], b2.getHidden()[0], 0f);
+		b2.addLink(b2.getHidden()[0], b2.getOutputs()[0], 1.5f);
+		b2.addLink(b2.getInputs()[0], b2.getOutputs()[0], 1f);
+		expected = b2.compute(input)[0];
+		b2.setConvergence(1e-6f);
+		assertEquals(expected, b2.compute(input)[0]);
+		assertEquals(3f * 199 + 200, expected);
+		Brain.setMaxUsableCores(4);
+		assertEquals(expected, b2.compute(input)[0]);
+		Brain.setMaxUsableCores(1);
+	}
+	
+	@Test
+	void testGenomeHash() {
+		//the FlexibleBrain
+		FlexibleBrain f = new FlexibleBrain(2, 3, 2);
+		for (int i = 0; i < 20; i++) f.addRandomLink(1);
+		long hash = f.getGenomeHash();
+		FlexibleBrain copy = (FlexibleBrain) f.duplicate();
+		assertEquals(hash, copy.getGenomeHash());
+		for (int i = 0; i < 50; i++) {
+			copy.changeRandomLinkFactor(0.5f);
+			copy.changeRandomLinkExtremity();
+			copy.addRandomLink(1);
+			copy.addRandomNode();
+			copy.deleteRandomLink();
+			copy.deleteRandomNode();
+			//the updated hash is the one of the genome
+			assertEquals(copy.computeGenesHash() + copy.structureHash(), copy.getGenomeHash());
+		}
+		assertNotEquals(hash, copy.getGenomeHash());
+		assertEquals(hash, f.getGenomeHash());
+		copy = (FlexibleBrain) f.duplicate();
+		copy.setLocalTimeToCompute(7);
+		assertNotEquals(hash, copy.getGenomeHash());
+		//the LayeredBrain
+		LayeredBrain.setDefaultLinkValue(0);
+		LayeredBrain.setDefaultLinkVariation(1);
+		LayeredBrain l = new LayeredBrain(2, 2, 2, 3);
+		hash = l.getGenomeHash();
+		LayeredBrain layeredCopy = (LayeredBrain) l.duplicate();
+		assertEquals(hash, layeredCopy.getGenomeHash());
+		for (int i = 0; i < 50; i++) {
+			layeredCopy.changeRandomLinkFactor(0.5f);
+			if (i % 5 == 0) layeredCopy.addRandomNode();
+			if (i % 7 == 0) layeredCopy.deleteRandomNode();
+			assertEquals(layeredCopy.computeGenesHash() + layeredCopy.structureHash(), 
+					layeredCopy.getGenomeHash());
+		}
+		assertNotEquals(hash, layeredCopy.getGenomeHash());
+		//the same change on both brains gives the same hash
+		layeredCopy = (LayeredBrain) l.duplicate();
+		float[] input = new float[] {1, 1};
+		layeredCopy.changeLinkFactor(5f, 0, 0, 0);
+		assertNotEquals(hash, layeredCopy.getGenomeHash());
+		l.changeLinkFactor(5f, 0, 0, 0);
+		assertEquals(l.getGenomeHash(), layeredCopy.getGenomeHash());
+		assertArrayEquals(l.compute(input), layeredCopy.compute(input));
+	}
+	
+	@Test
+	void testFlexibleBrainStateful() {
+		Brain.setMaxUsableCores(1);
+		FlexibleBrain b = new FlexibleBrain(1, 1, 1);
+		b.addLink(b.getInputs()[0], b.getHidden()[0], 1f);
+		b.addLink(b.getHidden()[0], b.getHidden()[0], 0.5f);
+		b.addLink(b.getHidden()[0], b.getOutputs()[0], 1f);
+		float[] input = new float[] {1f};
+		FlexibleBrain.setTimeToCompute(3);
+		float expected = b.compute(input)[0];
+		//one jump for each computing
+		b.setStateful(true);
+		assertTrue(b.isStateful());
+		float[] steps = new float[] {0f, 1f, 1.5f};
+		float sum = 0;
+		for (float step : steps) {
+			float result = b.compute(input)[0];
+			assertEquals(step, result);
+			sum += result;
+		}
+		//the outputs received during the jumps add up to the result without state
+		assertEquals(expected, sum);
+		b.resetState();
+		assertEquals(0f, b.compute(input)[0]);
+		assertEquals(1f, b.compute(input)[0]);
+		//back to the normal mode
+		b.setStateful(false);
+		assertEquals(expected, b.compute(input)[0]);
+	}
+	
 	@Test
 	void testFlexibleBrainMutationLogDeleteNode() {
 		Brain.setTraceMutation(true);
@@ -433,6 +762,167 @@ class TestBrain {
 		assertNotNull(b7.compute(input));
 	}
 	
+	@Test
+	void testFlexibleBrainCombinaisonLinks() {
+		Brain.setTraceMutation(false);
+		FlexibleBrain b1 = new FlexibleBrain(2, 1, 2);
+		FlexibleBrain b2 = new FlexibleBrain(2, 4, 2);
+		b1.addLink(b1.getInputs()[0], b1.getHidden()[0], 1f);
+		b1.addLink(b1.getHidden()[0], b1.getOutputs()[1], 2f);
+		b2.addLink(b2.getInputs()[0], b2.getHidden()[0], 3f);
+		b2.addLink(b2.getInputs()[1], b2.getHidden()[3], 4f);
+		b2.addLink(b2.getHidden()[3], b2.getOutputs()[0], 6f);
+		b2.addLink(b2.getInputs()[0], b2.getHidden()[0], 1f);
+		FlexibleBrain child = (FlexibleBrain) Brain.combine(b1, b2);
+		assertEquals(4, child.getHidden().length);
+		//the three links from input 0 to hidden 0 are fused
+		assertEquals(4, child.getLinks().size());
+		FlexibleBrain expected = new FlexibleBrain(2, 4, 2);
+		expected.addLink(expected.getInputs()[0], expected.getHidden()[0], 2.5f);
+		expected.addLink(expected.getHidden()[0], expected.getOutputs()[1], 1f);
+		expected.addLink(expected.getInputs()[1], expected.getHidden()[3], 2f);
+		expected.addLink(expected.getHidden()[3], expected.getOutputs()[0], 3f);
+		FlexibleBrain.setTimeToCompute(2);
+		float[] input = new float[] {1f, 2f};
+		assertArrayEquals(expected.compute(input), child.compute(input));
+	}
+	
+	@Test
+	void testFlexibleBrainCombinaisonSize() {
+		Brain.setTraceMutation(false);
+		InnovationRegistry registry = InnovationRegistry.getInstance();
+		FlexibleBrain child = new FlexibleBrain(1, 2, 1);
+		for (int i = 0; i < 50; i++) {
+			//a parent with new hidden nodes, that are not linked
+			registry.nextGeneration();
+			FlexibleBrain parent = new FlexibleBrain(1, 2, 1);
+			parent.addNode();
+			parent.addNode();
+			child = (FlexibleBrain) Brain.combine(child, parent);
+		}
+		assertEquals(4, child.getHidden().length);
+		//the linked hidden nodes are all kept
+		registry.nextGeneration();
+		FlexibleBrain parent = new FlexibleBrain(1, 2, 1);
+		parent.addNode();
+		parent.addLink(parent.getInputs()[0], parent.getHidden()[2], 1f);
+		parent.addLink(parent.getHidden()[2], parent.getOutputs()[0], 1f);
+		child.addLink(child.getInputs()[0], child.getHidden()[3], 1f);
+		child = (FlexibleBrain) Brain.combine(child, parent);
+		assertEquals(4, child.getHidden().length);
+		assertEquals(3, child.getLinks().size());
+		FlexibleBrain.setTimeToCompute(2);
+		assertEquals(0.25f, child.compute(new float[] {1})[0]);
+	}
+	
+	@Test
+	void testFlexibleBrainInnovation() {
+		Brain.setTraceMutation(false);
+		InnovationRegistry registry = InnovationRegistry.getInstance();
+		registry.nextGeneration();
+		FlexibleBrain b1 = new FlexibleBrain(2, 2, 1);
+		FlexibleBrain b2 = new FlexibleBrain(2, 2, 1);
+		//the same link in the same generation has the same innovation number
+		b1.addLink(b1.getInputs()[0], b1.getHidden()[1], 1f);
+		b2.addLink(b2.getInputs()[0], b2.getHidden()[1], 2f);
+		assertEquals(b1.getLinks().get(0).getInnovation(), b2.getLinks().get(0).getInnovation());
+		//the nodes added at the same place in the same generation have the same id
+		b1.addNode();
+		b2.addNode();
+		assertEquals(b1.getHidden()[2].id, b2.getHidden()[2].id);
+		registry.nextGeneration();
+		FlexibleBrain b3 = new FlexibleBrain(2, 2, 1);
+		b3.addNode();
+		assertNotEquals(b1.getHidden()[2].id, b3.getHidden()[2].id);
+		b3.addLink(b3.getInputs()[1], b3.getHidden()[0], 1f);
+		b3.addLink(b3.getInputs()[0], b3.getHidden()[1], 1f);
+		//the links are sorted by innovation number
+		assertTrue(b3.getLinks().get(0).getInnovation() < b3.getLinks().get(1).getInnovation());
+		//the ids do not move when a node is deleted
+		int id = b1.getHidden()[1].id;
+		b1.deleteNode(0);
+		assertEquals(id, b1.getHidden()[0].id);
+		//the genes are lined up by innovation number
+		FlexibleBrain copy = (FlexibleBrain) b2.duplicate();
+		assertEquals(0f, b2.compatibilityDistance(copy, 1f, 1f, 1f));
+		assertEquals(0.4f, b2.compatibilityDistance(b1, 1f, 1f, 0.4f), 1e-6);
+		b1.addLink(b1.getInputs()[1], b1.getOutputs()[0], 1f);
+		b2.addLink(b2.getInputs()[1], b2.getHidden()[0], 1f);
+		b2.addLink(b2.getInputs()[0], b2.getOutputs()[0], 1f);
+		//1 matching gene with a difference of 1, 2 disjoint genes and 1 excess gene
+		assertEquals(1f / 3 + 2 * 0.5f / 3 + 0.25f, b1.compatibilityDistance(b2, 1f, 0.5f, 0.25f), 
+				1e-6);
+		//crossover keeps the linked nodes of both parents, up to the size of the biggest
+		FlexibleBrain child = (FlexibleBrain) Brain.combine(b1, b3);
+		assertEquals(3, child.getHidden().length);
+		for (int i = 1; i < child.getLinks().size(); i++) {
+			assertTrue(child.getLinks().get(i - 1).getInnovation() 
+					< child.getLinks().get(i).getInnovation());
+		}
+	}
+	
+	@Test
+	void testFlexibleBrainAddedNodeIds() {
+		Brain.setTraceMutation(false);
+		InnovationRegistry.getInstance().nextGeneration();
+		//adding, deleting and adding again at the same position in one generation
+		FlexibleBrain brain = new FlexibleBrain(1, 2, 1);
+		brain.addNode();
+		brain.deleteNode(0);
+		brain.addNode();
+		assertNotEquals(brain.getHidden()[1].id, brain.getHidden()[2].id);
+		//another brain making the same mutations gets the same ids
+		FlexibleBrain other = new FlexibleBrain(1, 2, 1);
+		other.addNode();
+		other.deleteNode(0);
+		other.addNode();
+		assertEquals(brain.getHidden()[2].id, other.getHidden()[2].id);
+		//the crossover keeps the two nodes apart
+		brain.addLink(brain.getInputs()[0], brain.getHidden()[1], 1f);
+		brain.addLink(brain.getInputs()[0], brain.getHidden()[2], 2f);
+		FlexibleBrain child = (FlexibleBrain) Brain.combine(brain, brain.duplicate());
+		assertEquals(3, child.getHidden().length);
+		assertNotEquals(child.getLinks().get(0).getInnovation(), 
+				child.getLinks().get(1).getInnovation());
+	}
+	
+	@Test
+	void testFlexibleBrainGeneratedCodeLargeNode() throws IOException {
+		Brain.setMaxUsableCores(1);
+		//an output receiving thousands of links, directly and through a hidden node
+		int nbInputs = 3000;
+		FlexibleBrain brain = new FlexibleBrain(nbInputs, 1, 2);
+		float[] input = new float[nbInputs];
+		for (int i = 0; i < nbInputs; i++) {
+			brain.addLink(brain.getInputs()[i], brain.getOutputs()[0], (i % 13 - 6) / 7f);
+			brain.addLink(brain.getInputs()[i], brain.getHidden()[0], (i % 5 - 2) / 3f);
+			input[i] = (i % 11 - 5) / 4f;
+		}
+		brain.addLink(brain.getHidden()[0], brain.getOutputs()[1], 0.5f);
+		for (int time : new int[] {1, 50}) {
+			FlexibleBrain.setTimeToCompute(time);
+			FlexibleBrain.setBytecodeThreshold(0);
+			float[] expected = new FlexibleBrain(brain).compute(input);
+			FlexibleBrain.setBytecodeThreshold(1);
+			FlexibleBrain copy = new FlexibleBrain(brain);
+			copy.compute(input);
+			assertTrue(copy.hasGeneratedCode());
+			assertArrayEquals(expected, copy.compute(input));
+		}
+		FlexibleBrain.setBytecodeThreshold(0);
+		//every method stays under the size the JIT compiles
+		int[] linksStart = new int[nbInputs + 2];
+		linksStart[nbInputs + 1] = nbInputs;
+		int[] origins = new int[nbInputs];
+		float[] factors = new float[nbInputs];
+		for (int i = 0; i < nbInputs; i++) {
+			origins[i] = i;
+			factors[i] = i + 0.5f;
+		}
+		assertTrue(FlexibleBrainCompiler.largestMethodSize(nbInputs + 1, nbInputs + 1, 
+				linksStart, origins, factors, new int[] {nbInputs}) <= 8000);
+	}
+	
 	@Test
 	void testFlexibleBrainCombinaison() {
 		FlexibleBrain.setTimeToCompute(2);
@@ -498,9 +988,11 @@ class TestBrain {
 		}
 		//compare results
 		Brain.setMaxUsableCores(8);
+		Brain.setMinLinksByThread(0);
 		float resultb11 = b1.compute(new float[] {1})[0];
 		float resultb21 = b2.compute(new float[] {1})[0];
 		Brain.setMaxUsableCores(1);
+		Brain.setMinLinksByThread(-1);
 		float resultb12 = b1.compute(new float[] {1})[0];
 		float resultb22 = b2.compute(new float[] {1})[0];
 		assertEquals(resultb11, resultb12);
@@ -523,14 +1015,299 @@ class TestBrain {
 		}
 		//compare results
 		Brain.setMaxUsableCores(8);
+		Brain.setMinLinksByThread(0);
 		float resultb11 = b1.compute(new float[] {1})[0];
 		float resultb21 = b2.compute(new float[] {1})[0];
 		Brain.setMaxUsableCores(1);
+		Brain.setMinLinksByThread(-1);
 		float resultb12 = b1.compute(new float[] {1})[0];
 		float resultb22 = b2.compute(new float[] {1})[0];
 		assertEquals(resultb11, resultb12);
 		assertEquals(resultb21, resultb22);
 	}
-
+	
+	@Test
+	void testLayeredBrainExecutor() {
+		LayeredBrain.setDefaultLinkValue(0.5f);
+		LayeredBrain.setDefaultLinkVariation(0.5f);
+		LayeredBrain b = new LayeredBrain(3, 2, 3, 20);
+		float[] input = new float[] {1, -2, 0.5f};
+		float[] expected = b.compute(input);
+		FlexibleBrain.setTimeToCompute(3);
+		FlexibleBrain f = new FlexibleBrain(3, 20, 3);
+		for (int i = 0; i < 100; i++) f.addRandomLink(1);
+		float[] expectedFlexible = f.compute(input);
+		//giving our own executor
+		AtomicInteger nbTasks = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		Brain.setExecutor(new AbstractExecutorService() {
+			@Override
+			public void execute(Runnable command) {
+				nbTasks.incrementAndGet();
+				executor.execute(command);
+			}
+			@Override
+			public void shutdown() {executor.shutdown();}
+			@Override
+			public List<Runnable> shutdownNow() {return executor.shutdownNow();}
+			@Override
+			public boolean isShutdown() {return executor.isShutdown();}
+			@Override
+			public boolean isTerminated() {return executor.isTerminated();}
+			@Override
+			public boolean awaitTermination(long timeout, TimeUnit unit) 
+					throws InterruptedException {
+				return executor.awaitTermination(timeout, unit);
+			}
+		});
+		Brain.setMaxUsableCores(4);
+		Brain.setMinLinksByThread(0);
+		float[] results = b.compute(input);
+		assertArrayEquals(expected, results);
+		if (Runtime.getRuntime().availableProcessors() > 1) assertTrue(nbTasks.get() > 0);
+		int nbLayeredTasks = nbTasks.get();
+		assertArrayEquals(expectedFlexible, f.compute(input));
+		if (Runtime.getRuntime().availableProcessors() > 1) 
+			assertTrue(nbTasks.get() > nbLayeredTasks);
+		//the given executor is not shut down by the brains
+		Brain.setExecutor(null);
+		assertFalse(executor.isShutdown());
+		Brain.setExecutor(executor);
+		Brain.shutdownExecutor();
+		assertFalse(executor.isShutdown());
+		executor.shutdown();
+		//back to the default pool
+		results = b.compute(input);
+		assertArrayEquals(expected, results);
+		Brain.shutdownExecutor();
+		results = b.compute(input);
+		assertArrayEquals(expected, results);
+		Brain.setMaxUsableCores(1);
+		Brain.setMinLinksByThread(-1);
+	}
+	
+	@Test
+	void testAdaptiveNbOfThreads() {
+		Assumptions.assumeTrue(Runtime.getRuntime().availableProcessors() > 1);
+		LayeredBrain.setDefaultLinkValue(0.5f);
+		LayeredBrain.setDefaultLinkVariation(0.5f);
+		float[] input = new float[] {1};
+		LayeredBrain small = new LayeredBrain(1, 1, 2, 2);
+		float[] expected = small.compute(input);
+		//a tiny brain is not worth the threads
+		Brain.setMaxUsableCores(4);
+		Brain.resetComputingStats();
+		assertArrayEquals(expected, small.compute(input));
+		ComputingStats stats = Brain.getComputingStats();
+		assertTrue(stats.getMinLinksByThread() > 0);
+		assertTrue(stats.getNsByLink() > 0);
+		assertEquals(3, stats.getNbSingleThread());
+		assertEquals(0, stats.getNbMultipleThreads());
+		//the choice is made for each layer
+		LayeredBrain wide = new LayeredBrain(1, 1, 2, 200);
+		expected = wide.compute(input);
+		Brain.setMinLinksByThread(1000);
+		Brain.resetComputingStats();
+		assertArrayEquals(expected, wide.compute(input));
+		stats = Brain.getComputingStats();
+		assertEquals(2, stats.getNbSingleThread());
+		assertEquals(1, stats.getNbMultipleThreads());
+		//the choice is made for the whole FlexibleBrain
+		FlexibleBrain f = new FlexibleBrain(1, 1, 1);
+		f.addLink(f.getInputs()[0], f.getHidden()[0], 1f);
+		f.addLink(f.getHidden()[0], f.getHidden()[0], 0.5f);
+		f.addLink(f.getHidden()[0], f.getOutputs()[0], 1f);
+		Brain.resetComputingStats();
+		f.compute(input);
+		assertEquals(1, Brain.getComputingStats().getNbSingleThread());
+		Brain.setMinLinksByThread(0);
+		Brain.resetComputingStats();
+		f.compute(input);
+		assertEquals(1, Brain.getComputingStats().getNbMultipleThreads());
+		//with one core, there is no choice to count
+		Brain.setMaxUsableCores(1);
+		Brain.resetComputingStats();
+		assertArrayEquals(expected, wide.compute(input));
+		f.compute(input);
+		stats = Brain.getComputingStats();
+		assertEquals(0, stats.getNbSingleThread() + stats.getNbMultipleThreads());
+		Brain.setMinLinksByThread(-1);
+	}
+	
+	@Test
+	void testLayeredBrainLinksLayout() {
+		Brain.setTraceMutation(false);
+		LayeredBrain.setDefaultLinkValue(0);
+		LayeredBrain.setDefaultLinkVariation(0);
+		LayeredBrain b = new LayeredBrain(2, 2, 1, 3);
+		//every link gets a different factor
+		for (int j = 0; j < 2; j++) for (int k = 0; k < 3; k++) {
+			b.changeLinkFactor(1 + j * 3 + k, 0, j, k);
+		}
+		for (int j = 0; j < 3; j++) for (int k = 0; k < 2; k++) {
+			b.changeLinkFactor(0.1f * (1 + j * 2 + k), 1, j, k);
+		}
+		float[] input = new float[] {1, 2};
+		//hidden values : 9, 12, 15
+		float[] results = b.compute(input);
+		assertEquals(9 * 0.1f + 12 * 0.3f + 15 * 0.5f, results[0], 1e-4f);
+		assertEquals(9 * 0.2f + 12 * 0.4f + 15 * 0.6f, results[1], 1e-4f);
+		//deleting the middle hidden node keeps the links of the other nodes
+		b.deleteNode(1, 1);
+		results = b.compute(input);
+		assertEquals(9 * 0.1f + 15 * 0.5f, results[0], 1e-4f);
+		assertEquals(9 * 0.2f + 15 * 0.6f, results[1], 1e-4f);
+		//the new node is added at the end of the layer
+		b.addNode(1);
+		b.changeLinkFactor(1, 0, 0, 2);
+		b.changeLinkFactor(1, 0, 1, 2);
+		b.changeLinkFactor(2, 1, 2, 0);
+		results = b.compute(input);
+		assertEquals(9 * 0.1f + 15 * 0.5f + 3 * 2, results[0], 1e-4f);
+		assertEquals(9 * 0.2f + 15 * 0.6f, results[1], 1e-4f);
+		//the save keeps the layout
+		Brain copy = Brain.restore(ByteBuffer.wrap(b.toBytes()));
+		assertArrayEquals(results, copy.compute(input));
+	}
+	
+	@Test
+	void testComputeBatch() {
+		LayeredBrain.setDefaultLinkValue(0);
+		LayeredBrain.setDefaultLinkVariation(1);
+		LayeredBrain b1 = new LayeredBrain(3, 2, 2, 7);
+		float[][] inputs = new float[25][];
+		for (int s = 0; s < inputs.length; s++) {
+			inputs[s] = new float[] {s, 1f / (s + 1), -s * 0.5f};
+		}
+		//same results as one sample at a time
+		float[][] results = b1.computeBatch(inputs);
+		assertEquals(inputs.length, results.length);
+		for (int s = 0; s < inputs.length; s++) {
+			assertArrayEquals(b1.compute(inputs[s]), results[s]);
+		}
+		//same results with multiple threads
+		Brain.setMaxUsableCores(4);
+		Brain.setMinLinksByThread(0);
+		float[][] results2 = b1.computeBatch(inputs);
+		Brain.setMaxUsableCores(1);
+		Brain.setMinLinksByThread(-1);
+		for (int s = 0; s < inputs.length; s++) {
+			assertArrayEquals(results[s], results2[s]);
+		}
+		//the flat version
+		float[] flatInputs = new float[] {1, 2, 3, 4, 5, 6};
+		float[] flatResults = b1.computeBatch(flatInputs, 2);
+		assertArrayEquals(b1.compute(new float[] {1, 2, 3}), Arrays.copyOfRange(flatResults, 0, 2));
+		assertArrayEquals(b1.compute(new float[] {4, 5, 6}), Arrays.copyOfRange(flatResults, 2, 4));
+		//default version for the FlexibleBrain
+		FlexibleBrain.setTimeToCompute(2);
+		FlexibleBrain b2 = new FlexibleBrain(3, 2, 2);
+		for (int i = 0; i < 10; i++) b2.addRandomLink(1);
+		results = b2.computeBatch(inputs);
+		for (int s = 0; s < inputs.length; s++) {
+			assertArrayEquals(b2.compute(inputs[s]), results[s]);
+		}
+	}
+	
+	@Test
+	void testLayerKernel() {
+		LayerKernel kernel = LayerKernel.select();
+		LayerKernel scalar = new ScalarLayerKernel();
+		float[] weights = new float[103];
+		for (int i = 0; i < weights.length; i++) weights[i] = (float) Math.sin(i) * 3;
+		//different lengths and offsets to check the end of the rows
+		for (int length = 0; length < 40; length++) {
+			float[] target1 = new float[length + 5];
+			float[] target2 = new float[length + 5];
+			float sumProducts = 0;
+			for (int j = 0; j < 20; j++) {
+				float value = (float) Math.cos(j + length) * 2;
+				kernel.transmit(value, weights, j + length, target1, 3, length);
+				scalar.transmit(value, weights, j + length, target2, 3, length);
+				sumProducts += Math.abs(value * 3);
+			}
+			for (int k = 0; k < target1.length; k++) {
+				assertEquals(target2[k], target1[k], 1e-6f * sumProducts);
+			}
+			//the values outside of the row are not touched
+			for (int k = 0; k < 3; k++) assertEquals(0f, target1[k]);
+			assertEquals(0f, target1[length + 3]);
+		}
+	}
+	
+	@Test
+	void testComputeWithoutAllocation() {
+		ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assumptions.assumeTrue(bean.isThreadAllocatedMemorySupported());
+		bean.setThreadAllocatedMemoryEnabled(true);
+		Brain.setMaxUsableCores(1);
+		LayeredBrain.setDefaultLinkValue(0);
+		LayeredBrain.setDefaultLinkVariation(1);
+		FlexibleBrain.setTimeToCompute(3);
+		LayeredBrain b1 = new LayeredBrain(4, 3, 3, 16);
+		FlexibleBrain b2 = new FlexibleBrain(4, 10, 3);
+		for (int i = 0; i < 60; i++) b2.addRandomLink(1);
+		float[] inputs = new float[] {1, -1, 0.5f, 2};
+		float[] outputs = new float[3];
+		//same results as the allocating version
+		b1.compute(inputs, outputs);
+		assertArrayEquals(b1.compute(inputs), outputs);
+		b2.compute(inputs, outputs);
+		assertArrayEquals(b2.compute(inputs), outputs);
+		//letting the JIT compile the code
+		for (int i = 0; i < 20000; i++) {
+			b1.compute(inputs, outputs);
+			b2.compute(inputs, outputs);
+		}
+		long threadId = Thread.currentThread().getId();
+		int nbCalls = 100000;
+		long before = bean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < nbCalls; i++) {
+			b1.compute(inputs, outputs);
+			b2.compute(inputs, outputs);
+		}
+		long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+		//far less than one byte for each call
+		assertTrue(allocated < nbCalls / 10, allocated + " bytes allocated");
+	}
+	
+	@Test
+	void testConcurrentCompute() throws Exception {
+		Brain.setMaxUsableCores(1);
+		LayeredBrain.setDefaultLinkValue(0);
+		LayeredBrain.setDefaultLinkVariation(1);
+		FlexibleBrain.setTimeToCompute(4);
+		LayeredBrain b1 = new LayeredBrain(5, 4, 3, 12);
+		FlexibleBrain b2 = new FlexibleBrain(5, 12, 3);
+		for (int i = 0; i < 80; i++) b2.addRandomLink(1);
+		int nbSamples = 50;
+		float[][] inputs = new float[nbSamples][5];
+		for (int s = 0; s < nbSamples; s++) {
+			for (int i = 0; i < 5; i++) inputs[s][i] = (s * 7 + i * 3) % 11 - 5;
+		}
+		float[][] expected1 = new float[nbSamples][];
+		float[][] expected2 = new float[nbSamples][];
+		for (int s = 0; s < nbSamples; s++) {
+			expected1[s] = b1.compute(inputs[s]);
+			expected2[s] = b2.compute(inputs[s]);
+		}
+		//the same brains are used by several threads at the same time
+		int nbThreads = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+		AtomicInteger errors = new AtomicInteger();
+		for (int t = 0; t < nbThreads; t++) {
+			int offset = t;
+			executor.execute(() -> {
+				for (int r = 0; r < 200; r++) {
+					int s = (r + offset * 13) % nbSamples;
+					if (!Arrays.equals(expected1[s], b1.compute(inputs[s]))) errors.incrementAndGet();
+					if (!Arrays.equals(expected2[s], b2.compute(inputs[s]))) errors.incrementAndGet();
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		assertEquals(0, errors.get());
+	}
 
 }
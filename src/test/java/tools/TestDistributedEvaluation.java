@@ -0,0 +1,160 @@
+package tools;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import org.junit.jupiter.api.Test;
+
+import algorithm.neat.Individual;
+import brain.LayeredBrain;
+
+class TestDistributedEvaluation {
+
+	//the evaluation of the workers
+	public static class OutputEvaluation implements IndividualEvaluation {
+		@Override
+		public float evaluate(Individual individual) {
+			return individual.getBrain().compute(new float[] {1})[0];
+		}
+	}
+
+	//the first worker evaluating the individual 7 of a batch dies
+	public static class CrashingEvaluation extends OutputEvaluation {
+		@Override
+		public float evaluate(Individual individual) {
+			try {
+				if (individual.getId() % 10 == 7 && new File(CRASH_MARKER).createNewFile()) {
+					Runtime.getRuntime().halt(1);
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return super.evaluate(individual);
+		}
+	}
+
+	//an evaluation that always fails
+	public static class FailingEvaluation implements IndividualEvaluation {
+		@Override
+		public float evaluate(Individual individual) {
+			throw new IllegalArgumentException("no score");
+		}
+	}
+
+	//an evaluation throwing an error
+	public static class ErrorEvaluation implements IndividualEvaluation {
+		@Override
+		public float evaluate(Individual individual) {
+			throw new StackOverflowError("too deep");
+		}
+	}
+
+	static final String CRASH_MARKER = "worker_crash.marker";
+
+	//a population of small brains
+	static Individual[] population(int size) {
+		LayeredBrain.setDefaultLinkValue(0);
+		LayeredBrain.setDefaultLinkVariation(1);
+		Individual[] population = new Individual[size];
+		for (int i = 0; i < population.length; i++) {
+			population[i] = new Individual(new LayeredBrain(1, 1, 2, 3));
+		}
+		return population;
+	}
+
+	static void assertScores(Individual[] population) {
+		OutputEvaluation expected = new OutputEvaluation();
+		for (Individual individual : population) {
+			assertEquals(expected.evaluate(individual), individual.getScore());
+		}
+	}
+
+	@Test
+	void testWorkers() throws Exception {
+		new File(CRASH_MARKER).delete();
+		try (DistributedEvaluation evaluation = new DistributedEvaluation(0, 4)) {
+			evaluation.setHeartbeat(100, 2000);
+			evaluation.startLocalWorkers(3, CrashingEvaluation.class);
+			assertTrue(evaluation.awaitWorkers(3, 30000));
+			//one worker dies during the first evaluation, its batch is evaluated again
+			Individual[] population = population(60);
+			evaluation.evaluate(population);
+			assertScores(population);
+			assertTrue(new File(CRASH_MARKER).exists());
+			assertEquals(2, evaluation.getNbWorkers());
+			assertTrue(evaluation.getNbReassignedBatches() >= 1);
+			//the other workers keep working
+			population = population(25);
+			evaluation.evaluate(population);
+			assertScores(population);
+		} finally {
+			new File(CRASH_MARKER).delete();
+		}
+	}
+
+	@Test
+	void testSilentWorker() throws Exception {
+		try (DistributedEvaluation evaluation = new DistributedEvaluation(0, 100)) {
+			evaluation.setHeartbeat(100, 1000);
+			//a worker that never answers gets the first batch
+			try (Socket silent = new Socket(InetAddress.getLoopbackAddress(),
+					evaluation.getPort())) {
+				assertTrue(evaluation.awaitWorkers(1, 30000));
+				Individual[] population = population(10);
+				Thread evaluator = new Thread(() -> evaluation.evaluate(population));
+				evaluator.start();
+				Thread.sleep(200);
+				evaluation.startLocalWorkers(1, OutputEvaluation.class);
+				evaluator.join(60000);
+				assertFalse(evaluator.isAlive());
+				assertScores(population);
+				assertEquals(1, evaluation.getNbReassignedBatches());
+			}
+		}
+	}
+
+	@Test
+	void testFailingEvaluation() throws Exception {
+		try (DistributedEvaluation evaluation = new DistributedEvaluation()) {
+			evaluation.startLocalWorkers(1, FailingEvaluation.class);
+			assertTrue(evaluation.awaitWorkers(1, 30000));
+			assertThrows(IllegalStateException.class, () -> evaluation.evaluate(population(5)));
+		}
+	}
+
+	@Test
+	void testErrorInEvaluation() throws Exception {
+		try (DistributedEvaluation evaluation = new DistributedEvaluation()) {
+			evaluation.startLocalWorkers(2, ErrorEvaluation.class);
+			assertTrue(evaluation.awaitWorkers(2, 30000));
+			assertThrows(IllegalStateException.class, () -> evaluation.evaluate(population(5)));
+			//the workers are still alive and the batch was not given to an other one
+			assertEquals(2, evaluation.getNbWorkers());
+			assertEquals(0, evaluation.getNbReassignedBatches());
+		}
+	}
+
+	@Test
+	void testNoWorker() throws Exception {
+		try (DistributedEvaluation evaluation = new DistributedEvaluation()) {
+			evaluation.setWorkerTimeout(0);
+			assertThrows(IllegalStateException.class, () -> evaluation.evaluate(population(5)));
+			//the evaluation waits for a worker until the timeout
+			evaluation.setWorkerTimeout(300);
+			long start = System.currentTimeMillis();
+			assertThrows(IllegalStateException.class, () -> evaluation.evaluate(population(5)));
+			assertTrue(System.currentTimeMillis() - start >= 300);
+			//a worker connecting in time is used
+			evaluation.setWorkerTimeout(30000);
+			evaluation.startLocalWorkers(1, OutputEvaluation.class);
+			Individual[] population = population(5);
+			evaluation.evaluate(population);
+			assertScores(population);
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+package tools;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import algorithm.neat.Individual;
+import brain.LayeredBrain;
+
+class TestParallelEvaluation {
+
+	@Test
+	void testSameScores() {
+		LayeredBrain.setDefaultLinkValue(0);
+		LayeredBrain.setDefaultLinkVariation(1);
+		Individual[] population = new Individual[500];
+		for (int i = 0; i < population.length; i++) {
+			population[i] = new Individual(new LayeredBrain(2, 1, 2, 5));
+		}
+		IndividualEvaluation evaluation = individual -> 
+				individual.getBrain().compute(new float[] {1, -1})[0];
+		float[] expected = new float[population.length];
+		for (int i = 0; i < population.length; i++) {
+			expected[i] = evaluation.evaluate(population[i]);
+		}
+		new ParallelEvaluation(evaluation, 4).evaluate(population);
+		for (int i = 0; i < population.length; i++) {
+			assertEquals(expected[i], population[i].getScore());
+		}
+		//an empty population does nothing
+		new ParallelEvaluation(evaluation).evaluate(new Individual[0]);
+	}
+	
+	@Test
+	void testConcurrentScoreUpdates() {
+		Individual shared = new Individual(new LayeredBrain(1, 1, 1, 1));
+		Individual[] population = new Individual[10000];
+		for (int i = 0; i < population.length; i++) population[i] = shared;
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ParallelEvaluation evaluation = new ParallelEvaluation(individual -> 1f, pool);
+		assertSame(pool, evaluation.getPool());
+		evaluation.evaluate(population);
+		assertEquals(population.length, shared.getScore());
+		//the given pool is left running
+		assertFalse(pool.isShutdown());
+		pool.shutdown();
+	}
+	
+	@Test
+	void testException() {
+		Individual[] population = new Individual[100];
+		for (int i = 0; i < population.length; i++) {
+			population[i] = new Individual(new LayeredBrain(1, 1, 1, 1));
+		}
+		ParallelEvaluation evaluation = new ParallelEvaluation(individual -> {
+			if (individual == population[42]) throw new IllegalStateException("failed");
+			return 1f;
+		}, 4);
+		assertThrows(IllegalStateException.class, () -> evaluation.evaluate(population));
+	}
+
+}
@@ -0,0 +1,62 @@
+package tools;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import algorithm.neat.Individual;
+import algorithm.neat.reproduction.Elitism;
+import brain.LayeredBrain;
+
+class TestSuccessiveHalvingEvaluation {
+
+	@Test
+	void testHalving() {
+		Individual[] population = new Individual[8];
+		Map<Individual, Integer> quality = new HashMap<>();
+		for (int i = 0; i < population.length; i++) {
+			population[i] = new Individual(new LayeredBrain(1, 1, 1, 1));
+			quality.put(population[i], i);
+		}
+		//each stage costs 10, so the longer evaluated ones have the lowest scores
+		SuccessiveHalvingEvaluation evaluation = new SuccessiveHalvingEvaluation(
+				(individual, stage) -> quality.get(individual) - 10, 3, 0.5f, 2);
+		evaluation.evaluate(population);
+		assertEquals(8 + 4 + 2, evaluation.getNbEvaluatedStages());
+		int[] expectedStages = {1, 1, 1, 1, 2, 2, 3, 3};
+		for (int i = 0; i < population.length; i++) {
+			assertEquals(expectedStages[i], population[i].getStage());
+			assertEquals(expectedStages[i] * (i - 10), population[i].getScore());
+		}
+		//the individuals evaluated with the full budget are selected first
+		int best = population[7].getId();
+		int second = population[6].getId();
+		Individual[] next = new Elitism(2, 0, 0, 2).reproduce(population);
+		assertEquals(best, next[0].getParentId());
+		assertEquals(second, next[1].getParentId());
+	}
+
+	@Test
+	void testMinKept() {
+		Individual[] population = new Individual[5];
+		for (int i = 0; i < population.length; i++) {
+			population[i] = new Individual(new LayeredBrain(1, 1, 1, 1));
+		}
+		SuccessiveHalvingEvaluation evaluation = new SuccessiveHalvingEvaluation(
+				(individual, stage) -> 1, 4, 0.1f, 3);
+		evaluation.evaluate(population);
+		assertEquals(5 + 3 + 3 + 3, evaluation.getNbEvaluatedStages());
+		int nbComplete = 0;
+		for (Individual individual : population) {
+			if (individual.getStage() == 4) nbComplete++;
+			assertEquals(individual.getStage(), individual.getScore());
+		}
+		assertEquals(3, nbComplete);
+		assertThrows(IllegalArgumentException.class, 
+				() -> new SuccessiveHalvingEvaluation((individual, stage) -> 0, 0, 0.5f, 1));
+	}
+
+}
@@ -0,0 +1,144 @@
+package tools;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import algorithm.neat.Individual;
+import algorithm.neat.NEATAlgorithm;
+import algorithm.neat.reproduction.Elitism;
+import brain.LayeredBrain;
+
+class TestVirtualThreadEvaluation {
+	
+	//a population of small brains
+	static Individual[] population(int size) {
+		Individual[] population = new Individual[size];
+		for (int i = 0; i < population.length; i++) {
+			population[i] = new Individual(new LayeredBrain(1, 1, 1, 1));
+		}
+		return population;
+	}
+
+	@Test
+	void testBlockingEvaluation() {
+		Individual[] population = population(200);
+		//every individual waits at the same time
+		VirtualThreadEvaluation evaluation = new VirtualThreadEvaluation(individual -> {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				fail();
+			}
+			return individual.getId();
+		});
+		long start = System.nanoTime();
+		evaluation.evaluate(population);
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		for (Individual individual : population) {
+			assertEquals(individual.getId(), individual.getScore());
+		}
+	}
+	
+	@Test
+	void testFallbackPoolReused() {
+		Assumptions.assumeFalse(VirtualThreadEvaluation.hasVirtualThreads());
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		VirtualThreadEvaluation evaluation = new VirtualThreadEvaluation(individual -> {
+			threads.add(Thread.currentThread());
+			return 1f;
+		}, 4);
+		evaluation.evaluate(population(20));
+		Set<Thread> firstThreads = Set.copyOf(threads);
+		assertTrue(firstThreads.size() <= 4);
+		//the next generation uses the same threads
+		threads.clear();
+		Individual[] population = population(20);
+		evaluation.evaluate(population);
+		assertTrue(firstThreads.containsAll(threads));
+		for (Individual individual : population) assertEquals(1f, individual.getScore());
+	}
+	
+	@Test
+	void testCancel() throws InterruptedException {
+		Individual[] population = population(50);
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicInteger nbInterrupted = new AtomicInteger();
+		AtomicInteger nbRunning = new AtomicInteger();
+		VirtualThreadEvaluation evaluation = new VirtualThreadEvaluation(individual -> {
+			nbRunning.incrementAndGet();
+			started.countDown();
+			try {
+				Thread.sleep(60000);
+			} catch (InterruptedException e) {
+				nbInterrupted.incrementAndGet();
+			}
+			nbRunning.decrementAndGet();
+			return 1f;
+		}, 10);
+		Thread canceller = new Thread(() -> {
+			try {
+				started.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+			evaluation.cancel();
+		});
+		canceller.start();
+		long start = System.nanoTime();
+		evaluation.evaluate(population);
+		canceller.join();
+		//every started task is interrupted and finished when evaluate returns
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+		assertTrue(nbInterrupted.get() > 0);
+		assertEquals(0, nbRunning.get());
+	}
+	
+	@Test
+	void testCancelBeforeEvaluate() {
+		AtomicInteger nbEvaluated = new AtomicInteger();
+		VirtualThreadEvaluation evaluation = new VirtualThreadEvaluation(individual -> {
+			nbEvaluated.incrementAndGet();
+			return 1f;
+		}, 4);
+		evaluation.cancel();
+		evaluation.evaluate(population(20));
+		assertEquals(0, nbEvaluated.get());
+		//the next evaluation is not cancelled
+		Individual[] population = population(20);
+		evaluation.evaluate(population);
+		assertEquals(20, nbEvaluated.get());
+		for (Individual individual : population) assertEquals(1f, individual.getScore());
+	}
+	
+	@Test
+	void testStopAlgorithm() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		VirtualThreadEvaluation evaluation = new VirtualThreadEvaluation(individual -> {
+			started.countDown();
+			try {
+				Thread.sleep(60000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return 0f;
+		});
+		NEATAlgorithm algo = new NEATAlgorithm(new LayeredBrain(1, 1, 1, 1), 
+				new Elitism(1, 1, 1, 1), evaluation);
+		algo.setRegistrationFolderName("saves/testVirtualThreadStop");
+		algo.start();
+		algo.playPause();
+		assertTrue(started.await(30, TimeUnit.SECONDS));
+		algo.stop();
+		assertTrue(interrupted.await(30, TimeUnit.SECONDS));
+	}
+
+}
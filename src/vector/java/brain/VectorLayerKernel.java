@@ -0,0 +1,38 @@
+package brain;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class is the implementation of the LayerKernel using the vector API. <br>
+ * It is only compiled when the gradle property vectorApi is set to true. The remaining
+ * values at the end of a row also use a fused multiply-add, so the result of a target 
+ * node does not depend on where its row was split between the threads.
+ * @author jrl
+ *
+ */
+class VectorLayerKernel implements LayerKernel {
+	
+	/**
+	 * the preferred shape of vector on this computer
+	 */
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public void transmit(float value, float[] weights, int weightsOffset, 
+			float[] target, int targetOffset, int length) {
+		FloatVector factor = FloatVector.broadcast(SPECIES, value);
+		int upperBound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < upperBound; i += SPECIES.length()) {
+			FloatVector w = FloatVector.fromArray(SPECIES, weights, weightsOffset + i);
+			FloatVector t = FloatVector.fromArray(SPECIES, target, targetOffset + i);
+			w.fma(factor, t).intoArray(target, targetOffset + i);
+		}
+		for (; i < length; i++) {
+			target[targetOffset + i] = Math.fma(value, weights[weightsOffset + i], 
+					target[targetOffset + i]);
+		}
+	}
+
+}